@@ -0,0 +1,27 @@
+package com.example.auth_service;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.client.RestTemplate;
+
+@Configuration
+public class AuthConfig {
+
+    @Bean
+    @LoadBalanced
+    public RestTemplate restTemplate() {
+        return new RestTemplate();
+    }
+
+    // order_service and product_service ask for users in Smile, Jackson's binary JSON. It takes the place of MVC's
+    // default Smile converter, after the JSON one, so */* still gets JSON, and it is built from Boot's builder so
+    // both formats follow the same spring.jackson settings.
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        return new MappingJackson2SmileHttpMessageConverter(objectMapperBuilder.factory(new SmileFactory()).build());
+    }
+}
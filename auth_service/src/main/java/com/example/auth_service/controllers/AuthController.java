@@ -1,7 +1,11 @@
 package com.example.auth_service.controllers;
 
+import com.example.auth_service.dto.LoginRequestDTO;
+import com.example.auth_service.dto.LoginResponseDTO;
 import com.example.auth_service.entities.Auth;
+import com.example.auth_service.services.AuthChangeNotifier;
 import com.example.auth_service.services.AuthService;
+import com.example.auth_service.services.AuthTokenIssuer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
@@ -16,9 +20,13 @@ public class AuthController {
     @Value("${server.port}")
     private int serverPort;
     private final AuthService authService;
+    private final AuthChangeNotifier authChangeNotifier;
+    private final AuthTokenIssuer authTokenIssuer;
     @Autowired
-    public AuthController(AuthService authService) {
+    public AuthController(AuthService authService, AuthChangeNotifier authChangeNotifier, AuthTokenIssuer authTokenIssuer) {
         this.authService = authService;
+        this.authChangeNotifier = authChangeNotifier;
+        this.authTokenIssuer = authTokenIssuer;
     }
 
     @PostMapping("/register")
@@ -27,6 +35,18 @@ public class AuthController {
         Auth savedUser = authService.saveUser(user);
         return ResponseEntity.status(HttpStatus.CREATED).body(savedUser);
     }
+    // Returns a short-lived token for the user, which order-service and product-service accept as
+    // "Authorization: Bearer <token>" without calling back here
+    @PostMapping("/login")
+    public ResponseEntity<LoginResponseDTO> login(@RequestBody LoginRequestDTO credentials) {
+        Optional<Auth> user = authService.login(credentials.getUsername(), credentials.getPassword());
+        if (!user.isPresent()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        Auth auth = user.get();
+        return ResponseEntity.ok(new LoginResponseDTO(authTokenIssuer.issue(auth), authTokenIssuer.getTtlSeconds(),
+                auth.getId(), auth.getAuthType()));
+    }
     @PutMapping("/{id}")
     public ResponseEntity<Auth> updateUser(@PathVariable Long id, @RequestBody Auth user) {
         Optional<Auth> existingUserOpt = authService.findById(id);
@@ -37,6 +57,7 @@ public class AuthController {
         Auth existingUser = existingUserOpt.get();
         user.setId(id); // Ensure the ID is set correctly
         Auth updatedUser = authService.updateUser(user);
+        authChangeNotifier.authChanged(id); // Drop the cached identity in the services that call us
         return ResponseEntity.ok(updatedUser);
     }
 
@@ -48,6 +69,7 @@ public class AuthController {
         }
 
         authService.deleteUser(id);
+        authChangeNotifier.authChanged(id); // Drop the cached identity in the services that call us
         return ResponseEntity.noContent().build();
     }
 
@@ -0,0 +1,38 @@
+package com.example.auth_service.dto;
+
+// Send the token as "Authorization: Bearer <token>" to order-service and product-service
+public class LoginResponseDTO {
+    private final String token;
+    private final String tokenType = "Bearer";
+    private final long expiresIn;
+    private final Long userId;
+    private final String authType;
+
+    public LoginResponseDTO(String token, long expiresIn, Long userId, String authType) {
+        this.token = token;
+        this.expiresIn = expiresIn;
+        this.userId = userId;
+        this.authType = authType;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public String getTokenType() {
+        return tokenType;
+    }
+
+    // Seconds
+    public long getExpiresIn() {
+        return expiresIn;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getAuthType() {
+        return authType;
+    }
+}
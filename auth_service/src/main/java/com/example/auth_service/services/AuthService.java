@@ -15,10 +15,25 @@ import java.util.Optional;
 public class AuthService {
     private final AuthRepository authRepository;
     private final PasswordEncoder passwordEncoder;
+    // Checked against when the username is unknown, so that the answer takes as long as for a wrong password
+    private final String unknownUserHash;
     @Autowired
     public AuthService(AuthRepository authRepository, PasswordEncoder passwordEncoder) {
         this.authRepository = authRepository;
         this.passwordEncoder = passwordEncoder;
+        this.unknownUserHash = passwordEncoder.encode("unknown-user");
+    }
+    // The user, if the username exists and the password matches its BCrypt hash
+    public Optional<Auth> login(String username, String password) {
+        Auth user = username == null ? null : authRepository.findByUsername(username);
+        if (user == null) {
+            passwordEncoder.matches(password == null ? "" : password, unknownUserHash);
+            return Optional.empty();
+        }
+        if (password == null || !passwordEncoder.matches(password, user.getPassword())) {
+            return Optional.empty();
+        }
+        return Optional.of(user);
     }
     public Auth findByUsername(String username) {
         return authRepository.findByUsername(username);
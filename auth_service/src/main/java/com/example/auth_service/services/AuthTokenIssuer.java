@@ -0,0 +1,74 @@
+package com.example.auth_service.services;
+
+import com.example.auth_service.entities.Auth;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Issues the bearer tokens order-service and product-service verify on their own: HS256 JWTs with the user id as
+// subject and the authType as a claim, valid for auth.token.ttl-seconds
+@Component
+public class AuthTokenIssuer {
+    // Service tokens carry no user, the filters accept the "service" authType on no other subject
+    public static final long SERVICE_ID = 0L;
+    public static final String SERVICE = "service";
+    // {"alg":"HS256","typ":"JWT"}
+    private static final String HEADER = "eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+    @Autowired
+    public AuthTokenIssuer(@Value("${auth.token.secret}") String secret,
+                           @Value("${auth.token.ttl-seconds:900}") long ttlSeconds) {
+        if (secret.getBytes(StandardCharsets.UTF_8).length < 32) {
+            throw new IllegalArgumentException("auth.token.secret must be at least 32 bytes");
+        }
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public String issue(Auth user) {
+        return issue(user, System.currentTimeMillis() / 1000);
+    }
+
+    // For the calls between the services, such as the cache invalidation callbacks
+    public String issueServiceToken() {
+        Auth service = new Auth();
+        service.setId(SERVICE_ID);
+        service.setAuthType(SERVICE);
+        return issue(service);
+    }
+
+    // now in epoch seconds
+    String issue(Auth user, long now) {
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("sub", String.valueOf(user.getId()));
+        claims.put("authType", user.getAuthType());
+        claims.put("iat", now);
+        claims.put("exp", now + ttlSeconds);
+        try {
+            String content = HEADER + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(claims));
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            byte[] signature = mac.doFinal(content.getBytes(StandardCharsets.US_ASCII));
+            return content + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (JsonProcessingException | GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
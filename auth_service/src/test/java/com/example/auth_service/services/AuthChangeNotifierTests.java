@@ -0,0 +1,128 @@
+package com.example.auth_service.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class AuthChangeNotifierTests {
+
+    private final RestTemplate restTemplate = Mockito.mock(RestTemplate.class);
+    private final AuthTokenIssuer tokenIssuer = new AuthTokenIssuer("test-secret-0123456789abcdef-0123456789", 900);
+    @Captor
+    private ArgumentCaptor<HttpEntity<?>> requests;
+    private AuthChangeNotifier notifier;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (notifier != null) {
+            notifier.shutdown();
+        }
+    }
+
+    @Test
+    void everyListenerIsToldWhichAuthChanged() {
+        notifier = new AuthChangeNotifier(restTemplate, tokenIssuer,
+                Arrays.asList("http://a/cache/", "http://b/cache/"));
+
+        notifier.authChanged(42L);
+
+        verifyDeleted("http://a/cache/42");
+        verifyDeleted("http://b/cache/42");
+    }
+
+    @Test
+    void notificationsCarryAServiceToken() throws Exception {
+        notifier = new AuthChangeNotifier(restTemplate, tokenIssuer, Collections.singletonList("http://a/cache/"));
+
+        notifier.authChanged(1L);
+
+        verify(restTemplate, timeout(5000))
+                .exchange(eq("http://a/cache/1"), eq(HttpMethod.DELETE), requests.capture(), eq(Void.class));
+        String authorization = requests.getValue().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        String token = authorization.substring("Bearer ".length());
+        JsonNode claims = new ObjectMapper().readTree(Base64.getUrlDecoder().decode(token.split("\\.")[1]));
+        assertEquals("0", claims.path("sub").asText());
+        assertEquals(AuthTokenIssuer.SERVICE, claims.path("authType").asText());
+    }
+
+    @Test
+    void notificationsDoNotBlockTheCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(delete("http://a/cache/1"))
+                .thenAnswer(invocation -> {
+                    release.await();
+                    return null;
+                });
+        notifier = new AuthChangeNotifier(restTemplate, tokenIssuer, Collections.singletonList("http://a/cache/"));
+
+        long start = System.nanoTime();
+        notifier.authChanged(1L);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        release.countDown();
+
+        assertTrue(elapsedMs < 1000, elapsedMs + " ms");
+        verifyDeleted("http://a/cache/1");
+    }
+
+    @Test
+    void aFailingListenerDoesNotStopLaterNotifications() {
+        when(delete("http://a/cache/1"))
+                .thenThrow(new ResourceAccessException("connection refused"));
+        notifier = new AuthChangeNotifier(restTemplate, tokenIssuer, Collections.singletonList("http://a/cache/"));
+
+        notifier.authChanged(1L);
+        notifier.authChanged(2L);
+
+        verifyDeleted("http://a/cache/2");
+    }
+
+    @Test
+    void withoutListenersNothingIsSent() {
+        notifier = new AuthChangeNotifier(restTemplate, tokenIssuer, Collections.emptyList());
+
+        notifier.authChanged(1L);
+
+        verifyNoInteractions(restTemplate);
+    }
+
+    private void verifyDeleted(String url) {
+        verify(restTemplate, timeout(5000)).exchange(eq(url), eq(HttpMethod.DELETE), any(HttpEntity.class),
+                eq(Void.class));
+    }
+
+    private ResponseEntity<Void> delete(String url) {
+        return restTemplate.exchange(eq(url), eq(HttpMethod.DELETE), any(HttpEntity.class), eq(Void.class));
+    }
+}
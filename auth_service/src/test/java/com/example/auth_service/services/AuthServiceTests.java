@@ -0,0 +1,59 @@
+package com.example.auth_service.services;
+
+import com.example.auth_service.entities.Auth;
+import com.example.auth_service.repositories.AuthRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthServiceTests {
+
+    private AuthRepository authRepository;
+    private PasswordEncoder passwordEncoder;
+    private AuthService authService;
+    private Auth jane;
+
+    @BeforeEach
+    void setUp() {
+        authRepository = Mockito.mock(AuthRepository.class);
+        // The lowest BCrypt cost keeps the hashing quick
+        passwordEncoder = Mockito.spy(new BCryptPasswordEncoder(4));
+        authService = new AuthService(authRepository, passwordEncoder);
+        jane = new Auth("jane.doe@example.com", passwordEncoder.encode("correct horse"), "user");
+        jane.setId(42L);
+        when(authRepository.findByUsername("jane.doe@example.com")).thenReturn(jane);
+    }
+
+    @Test
+    void loginWithTheRightPasswordReturnsTheUser() {
+        Optional<Auth> user = authService.login("jane.doe@example.com", "correct horse");
+
+        assertEquals(42L, user.get().getId());
+    }
+
+    @Test
+    void loginWithAWrongOrMissingPasswordFails() {
+        assertFalse(authService.login("jane.doe@example.com", "wrong horse").isPresent());
+        assertFalse(authService.login("jane.doe@example.com", null).isPresent());
+        assertFalse(authService.login(null, "correct horse").isPresent());
+    }
+
+    @Test
+    void unknownUsersStillCostAPasswordCheck() {
+        assertFalse(authService.login("nobody@example.com", "correct horse").isPresent());
+
+        // Answering an unknown username without hashing would tell it apart from a wrong password by timing
+        verify(passwordEncoder, times(1)).matches(Mockito.eq("correct horse"), anyString());
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.auth_service.services;
+
+import com.example.auth_service.entities.Auth;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuthTokenIssuerTests {
+
+    private static final String SECRET = "test-secret-0123456789abcdef-0123456789";
+    // Issued for user 42 (company) at 2100-01-01T00:00:00Z. The AuthTokenFilterTests of order_service and
+    // product_service check that their filters accept this exact token, so the issuer and the filters cannot drift
+    // apart unnoticed.
+    private static final long ISSUED_AT = 4_102_444_800L;
+    private static final String ISSUED = "eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9"
+            + ".eyJzdWIiOiI0MiIsImF1dGhUeXBlIjoiY29tcGFueSIsImlhdCI6NDEwMjQ0NDgwMCwiZXhwIjo0MTAyNDQ1NzAwfQ"
+            + ".RX07RahYvpblAKqriREELmJ6fZ1KmqL0Mha7M3OTi4o";
+
+    private final AuthTokenIssuer issuer = new AuthTokenIssuer(SECRET, 900);
+
+    @Test
+    void tokensAreSignedTheWayTheFiltersVerifyThem() {
+        assertEquals(ISSUED, issuer.issue(user(42L, "company"), ISSUED_AT));
+    }
+
+    @Test
+    void tokensCarryTheUserAndExpireAfterTheTtl() throws Exception {
+        long before = System.currentTimeMillis() / 1000;
+
+        String token = issuer.issue(user(7L, "user"));
+
+        JsonNode claims = new ObjectMapper().readTree(Base64.getUrlDecoder().decode(token.split("\\.")[1]));
+        assertEquals("7", claims.path("sub").asText());
+        assertEquals("user", claims.path("authType").asText());
+        assertEquals(claims.path("iat").asLong() + 900, claims.path("exp").asLong());
+        assertTrue(claims.path("iat").asLong() >= before);
+        assertEquals(900, issuer.getTtlSeconds());
+    }
+
+    @Test
+    void serviceTokensCarryNoUser() throws Exception {
+        String token = issuer.issueServiceToken();
+
+        JsonNode claims = new ObjectMapper().readTree(Base64.getUrlDecoder().decode(token.split("\\.")[1]));
+        assertEquals("0", claims.path("sub").asText());
+        assertEquals(AuthTokenIssuer.SERVICE, claims.path("authType").asText());
+    }
+
+    @Test
+    void anotherSecretGivesAnotherSignature() {
+        AuthTokenIssuer other = new AuthTokenIssuer("another-secret-0123456789abcdef-0123", 900);
+
+        assertNotEquals(ISSUED, other.issue(user(42L, "company"), ISSUED_AT));
+    }
+
+    @Test
+    void shortSecretsAreRefused() {
+        assertThrows(IllegalArgumentException.class, () -> new AuthTokenIssuer("too-short", 900));
+    }
+
+    private static Auth user(Long id, String authType) {
+        Auth user = new Auth("jane.doe@example.com", "hash", authType);
+        user.setId(id);
+        return user;
+    }
+}
@@ -2,30 +2,49 @@ package com.example.order_service;
 
 import com.netflix.loadbalancer.IRule;
 import com.netflix.loadbalancer.RoundRobinRule;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
 
-import javax.ws.rs.HttpMethod;
+import org.springframework.http.HttpMethod;
 
 @Configuration
 @EnableWebSecurity
 public class OrderConfig extends WebSecurityConfigurerAdapter {
+    // Shared with auth-service, which signs the tokens
+    @Value("${auth.token.secret}")
+    private String tokenSecret;
 
     @Bean
     @LoadBalanced
-    public RestTemplate loadBalancedRestTemplate() {
-        return new RestTemplate();
+    public RestTemplate loadBalancedRestTemplate(RestTemplateBuilder restTemplateBuilder) {
+        return restTemplateBuilder.build();
     }
 
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(RestTemplateBuilder restTemplateBuilder) {
+        return restTemplateBuilder.build();
+    }
+
+    @Bean
+    public WebClient loadBalancedWebClient(WebClient.Builder webClientBuilder,
+                                           ReactorLoadBalancerExchangeFilterFunction loadBalancerFunction) {
+        return webClientBuilder.filter(loadBalancerFunction).build();
+    }
+
+    @Bean
+    public WebClient webClient(WebClient.Builder webClientBuilder) {
+        return webClientBuilder.build();
     }
 
     @Override
@@ -34,11 +53,16 @@ public class OrderConfig extends WebSecurityConfigurerAdapter {
                 .authorizeRequests()
                 .antMatchers(HttpMethod.GET, "/api/orders/**").permitAll() // Allow GET requests to /api/products/** without authentication
                 .antMatchers(HttpMethod.POST, "/api/orders").permitAll() // Allow POST requests to /api/products without authentication
+                .antMatchers(HttpMethod.POST, "/api/orders/bulk").permitAll() // Allow bulk order ingestion like single order creation
                 .antMatchers(HttpMethod.PUT, "/api/orders/**").permitAll() // Allow PUT requests to /api/products/**
                 .antMatchers(HttpMethod.DELETE, "/api/orders/**").permitAll() // Allow DELETE requests to /api/products/**
+                .antMatchers(HttpMethod.DELETE, "/api/cache/**").hasAuthority(AuthTokenFilter.SERVICE) // Cache invalidation callbacks, only from the other services
+                .antMatchers(HttpMethod.GET, "/actuator/**").permitAll() // Allow reading cache and client metrics
                 .anyRequest().authenticated() // All other endpoints require authentication
                 .and()
-                .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS); // Ensure stateless session management
+                .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS) // Ensure stateless session management
+                .and()
+                .addFilterBefore(new AuthTokenFilter(tokenSecret), UsernamePasswordAuthenticationFilter.class); // Authenticate bearer tokens from auth-service locally
     }
 
 }
@@ -0,0 +1,58 @@
+package com.example.order_service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class OrderLookupConfig {
+
+    // Bounded pool for the auth and product lookups an order fans out to.
+    // A full queue rejects the order instead of piling up work behind a slow dependency.
+    // Lookups run with the submitting request's security context, so the caller's token identity is seen there.
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService orderLookupExecutor(@Value("${order.lookup.pool-size:16}") int poolSize,
+                                               @Value("${order.lookup.queue-capacity:200}") int queueCapacity) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "order-lookup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new DelegatingSecurityContextExecutorService(new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy()));
+    }
+
+    // Workers of the asynchronous acceptance pipeline. The queue bounds how many accepted-but-unprocessed
+    // orders are held in memory; when it is full new asynchronous orders are turned away with a 503.
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor orderAcceptanceExecutor(@Value("${order.async.workers:4}") int workers,
+                                                      @Value("${order.async.queue-capacity:500}") int queueCapacity) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "order-acceptance-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(workers, workers, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Blocking JPA work of the reactive order path runs here, sized like the JDBC connection pool so saves
+    // queue for a thread rather than for a connection
+    @Bean(destroyMethod = "dispose")
+    public Scheduler orderJdbcScheduler(@Value("${order.reactive.jdbc-threads:10}") int jdbcThreads,
+                                        @Value("${order.reactive.jdbc-queue-capacity:1000}") int queueCapacity) {
+        return Schedulers.newBoundedElastic(jdbcThreads, queueCapacity, "order-jdbc");
+    }
+}
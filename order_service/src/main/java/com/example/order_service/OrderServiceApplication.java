@@ -2,11 +2,11 @@ package com.example.order_service;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.cloud.netflix.hystrix.EnableHystrix;
 import org.springframework.cloud.netflix.ribbon.RibbonClient;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableHystrix
+@EnableScheduling
 @RibbonClient(name = "order-service", configuration = OrderConfig.class)
 public class OrderServiceApplication {
 
@@ -0,0 +1,23 @@
+package com.example.order_service.controllers;
+
+import com.example.order_service.services.IdentityCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/cache/auth")
+public class IdentityCacheController {
+    private final IdentityCache identityCache;
+    @Autowired
+    public IdentityCacheController(IdentityCache identityCache) {
+        this.identityCache = identityCache;
+    }
+
+    // Called by auth_service whenever a user is updated or deleted
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> invalidateIdentity(@PathVariable Long id) {
+        identityCache.invalidate(id);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,48 +1,182 @@
 package com.example.order_service.controllers;
 
+import com.example.order_service.dto.BulkOrderResultDTO;
+import com.example.order_service.dto.OrderPageResponseDTO;
+import com.example.order_service.dto.OrderResponseDTO;
+import com.example.order_service.dto.OrderStatusDTO;
 import com.example.order_service.entities.Order;
+import com.example.order_service.services.ConcurrencyLimiters;
+import com.example.order_service.services.DownstreamFailures;
+import com.example.order_service.services.ETags;
+import com.example.order_service.services.IdempotencyStore;
+import com.example.order_service.services.OrderAcceptanceService;
+import com.example.order_service.services.OrderBulkService;
+import com.example.order_service.services.OrderExportService;
 import com.example.order_service.services.OrderService;
+import com.example.order_service.services.ReactiveOrderService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController {
+    private static final Logger log = LoggerFactory.getLogger(OrderController.class);
     private final OrderService orderService;
+    private final OrderExportService orderExportService;
+    private final OrderBulkService orderBulkService;
+    private final OrderAcceptanceService orderAcceptanceService;
+    private final ReactiveOrderService reactiveOrderService;
+    private final ConcurrencyLimiters limiters;
+    private final IdempotencyStore idempotencyStore;
+    // "reactive" creates orders without blocking the request thread on downstream calls
+    private final boolean reactive;
+    private final long exportTimeoutMs;
     @Autowired
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderExportService orderExportService,
+                           OrderBulkService orderBulkService, OrderAcceptanceService orderAcceptanceService,
+                           ReactiveOrderService reactiveOrderService, ConcurrencyLimiters limiters,
+                           IdempotencyStore idempotencyStore,
+                           @Value("${order.client.mode:blocking}") String clientMode,
+                           @Value("${order.export.timeout-ms:1800000}") long exportTimeoutMs) {
         this.orderService = orderService;
+        this.orderExportService = orderExportService;
+        this.orderBulkService = orderBulkService;
+        this.orderAcceptanceService = orderAcceptanceService;
+        this.reactiveOrderService = reactiveOrderService;
+        this.limiters = limiters;
+        this.idempotencyStore = idempotencyStore;
+        this.reactive = "reactive".equals(clientMode);
+        this.exportTimeoutMs = exportTimeoutMs;
     }
     @GetMapping
-    public ResponseEntity<List<Order>> getAllOrders() {
-        List<Order> orders = orderService.getAllOrders();
+    public ResponseEntity<List<OrderResponseDTO>> getAllOrders() {
+        List<OrderResponseDTO> orders = orderService.getAllOrders();
         System.out.println("the orders called to retrieved");
         return ResponseEntity.ok(orders);
     }
+    // Newline-delimited JSON export of every order, streamed as it is read from the database. It runs as an async
+    // task with its own timeout, long enough to read the whole table, other async requests keep the default one.
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public WebAsyncTask<Void> exportOrders(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        OutputStream out = response.getOutputStream();
+        return new WebAsyncTask<>(exportTimeoutMs, () -> {
+            orderExportService.exportOrders(out);
+            return null;
+        });
+    }
+    // A caller that sends the ETag it has gets 304 from a version check, without the order being loaded or written
     @GetMapping("/{id}")
-    public ResponseEntity<Order> getOrderById(@PathVariable Long id) {
-        Optional<Order> order = orderService.getOrderById(id);
-        return order.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+    public ResponseEntity<OrderResponseDTO> getOrderById(@PathVariable Long id,
+                                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Optional<Long> version = orderService.findOrderVersion(id);
+            if (!version.isPresent()) {
+                return ResponseEntity.notFound().build();
+            }
+            if (ETags.matches(ifNoneMatch, id, version.get())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ETags.of(id, version.get())).build();
+            }
+        }
+        Optional<OrderResponseDTO> order = orderService.getOrderById(id);
+        return order.map(o -> ResponseEntity.ok().eTag(ETags.of(o.getId(), o.getVersion())).body(o))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{id}/status")
+    public ResponseEntity<OrderStatusDTO> getOrderStatus(@PathVariable Long id) {
+        Optional<OrderStatusDTO> status = orderAcceptanceService.getStatus(id);
+        return status.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
+    @PostMapping(params = "async=true")
+    public Mono<ResponseEntity<OrderStatusDTO>> submitOrder(@RequestBody Order order,
+                                                            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyStore.execute("POST /api/orders?async=true", idempotencyKey, order, OrderStatusDTO.class,
+                () -> Mono.fromSupplier(() -> submit(order)));
+    }
+    private ResponseEntity<OrderStatusDTO> submit(Order order) {
+        try {
+            OrderStatusDTO status = orderAcceptanceService.submitOrder(order);
+            URI statusUri = ServletUriComponentsBuilder.fromCurrentContextPath()
+                    .path("/api/orders/{id}/status").buildAndExpand(status.getId()).toUri();
+            return ResponseEntity.accepted().location(statusUri).body(status);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    // A retry that repeats the Idempotency-Key gets the first attempt's response instead of creating another order
     @PostMapping
-    public ResponseEntity<Order> createOrder(@RequestBody Order order) {
+    public Mono<ResponseEntity<Order>> createOrder(@RequestBody Order order,
+                                                   @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyStore.execute("POST /api/orders", idempotencyKey, order, Order.class, () -> create(order));
+    }
+    private Mono<ResponseEntity<Order>> create(Order order) {
+        if (reactive) {
+            // The servlet thread is released here and the response is written when the pipeline completes
+            return limiters.get("create-order").callReactive(() -> reactiveOrderService.createOrder(order))
+                    .map(createdOrder -> ResponseEntity.status(HttpStatus.CREATED).body(createdOrder))
+                    // Shed calls are counted by concurrency.rejected
+                    .onErrorResume(RejectedExecutionException.class,
+                            e -> Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build()))
+                    .onErrorResume(RuntimeException.class, e -> {
+                        log.warn("Error creating order: {}", e.getMessage());
+                        return Mono.just(ResponseEntity.status(failureStatus(e)).body(null));
+                    });
+        }
         try{
-            Order createdOrder = orderService.createOrder(order);
-            return ResponseEntity.status(HttpStatus.CREATED).body(createdOrder);
+            Order createdOrder = limiters.get("create-order").call(() -> orderService.createOrder(order));
+            return Mono.just(ResponseEntity.status(HttpStatus.CREATED).body(createdOrder));
+        }catch (RejectedExecutionException e){
+            return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
         }catch (RuntimeException e){
-            System.err.println("Error creating order: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+            log.warn("Error creating order: {}", e.getMessage());
+            return Mono.just(ResponseEntity.status(failureStatus(e)).body(null));
         }
     }
+    // Lookups that time out or fail in auth-service or product-service are not the client's fault. They get 504 or
+    // 503, which the idempotency store does not remember, so a retry with the same key runs again.
+    private static HttpStatus failureStatus(RuntimeException e) {
+        HttpStatus status = DownstreamFailures.transientStatus(e);
+        return status != null ? status : HttpStatus.BAD_REQUEST;
+    }
+
+    // Creates many orders at once, the response holds one result per submitted order in the same order
+    @PostMapping("/bulk")
+    public ResponseEntity<List<BulkOrderResultDTO>> createOrders(@RequestBody List<Order> orders) {
+        return ResponseEntity.ok(orderBulkService.createOrders(orders));
+    }
 
     @PutMapping("/{id}")
     public ResponseEntity<Order> updateOrder(@PathVariable Long id, @RequestBody Order order) {
-        Order updatedOrder = orderService.updateOrder(id, order);
+        Order updatedOrder;
+        try {
+            updatedOrder = limiters.get("update-order").call(() -> orderService.updateOrder(id, order));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (RuntimeException e) {
+            log.warn("Error updating order: {}", e.getMessage());
+            return ResponseEntity.status(failureStatus(e)).body(null);
+        }
         if (updatedOrder != null) {
             return ResponseEntity.ok(updatedOrder);
         } else {
@@ -51,10 +185,34 @@ public class OrderController {
     }
 
     @GetMapping("/byType/{type}")
-    public List<Order> getOrdersByType(@PathVariable String type) {
+    public List<OrderResponseDTO> getOrdersByType(@PathVariable String type) {
         return orderService.getOrdersByType(type);
     }
 
+    @GetMapping("/customer/{customerId}")
+    public ResponseEntity<OrderPageResponseDTO> getCustomerHistory(@PathVariable Long customerId,
+                                                                   @RequestParam(required = false) String type,
+                                                                   @RequestParam(required = false) String cursor,
+                                                                   @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(orderService.getCustomerHistory(customerId, type, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/owner/{ownerId}")
+    public ResponseEntity<OrderPageResponseDTO> getOwnerHistory(@PathVariable Long ownerId,
+                                                                @RequestParam(required = false) String type,
+                                                                @RequestParam(required = false) String cursor,
+                                                                @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(orderService.getOwnerHistory(ownerId, type, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteOrder(@PathVariable Long id) {
         boolean deleted = orderService.deleteOrder(id);
@@ -0,0 +1,29 @@
+package com.example.order_service.controllers;
+
+import com.example.order_service.services.ProductCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/cache/products")
+public class ProductCacheController {
+    private final ProductCache productCache;
+    @Autowired
+    public ProductCacheController(ProductCache productCache) {
+        this.productCache = productCache;
+    }
+
+    // Called by product_service whenever a product is updated or deleted
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> invalidateProduct(@PathVariable Long id) {
+        productCache.invalidate(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> invalidateAllProducts() {
+        productCache.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.order_service.dto;
+
+public class BulkOrderResultDTO {
+    public static final String CREATED = "CREATED";
+    public static final String REJECTED = "REJECTED";
+    public static final String FAILED = "FAILED";
+
+    // Position of the order in the submitted list
+    private final int index;
+    private final Long orderId;
+    private final String status;
+    private final String error;
+
+    private BulkOrderResultDTO(int index, Long orderId, String status, String error) {
+        this.index = index;
+        this.orderId = orderId;
+        this.status = status;
+        this.error = error;
+    }
+
+    public static BulkOrderResultDTO created(int index, Long orderId) {
+        return new BulkOrderResultDTO(index, orderId, CREATED, null);
+    }
+
+    public static BulkOrderResultDTO rejected(int index, String error) {
+        return new BulkOrderResultDTO(index, null, REJECTED, error);
+    }
+
+    public static BulkOrderResultDTO failed(int index, String error) {
+        return new BulkOrderResultDTO(index, null, FAILED, error);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.order_service.dto;
+
+import java.util.Date;
+
+// One row of the orders x order_products join, read through a cursor by the export
+public class OrderExportRowDTO {
+    private final Long orderId;
+    private final Long ownerId;
+    private final Long customerId;
+    private final String type;
+    private final Double cost;
+    private final Date createdAt;
+    private final Long version;
+    private final Long orderProductId;
+    private final Long productId;
+    private final Integer quantity;
+    private final Double unitPrice;
+
+    public OrderExportRowDTO(Long orderId, Long ownerId, Long customerId, String type, Double cost, Date createdAt,
+                             Long version, Long orderProductId, Long productId, Integer quantity, Double unitPrice) {
+        this.orderId = orderId;
+        this.ownerId = ownerId;
+        this.customerId = customerId;
+        this.type = type;
+        this.cost = cost;
+        this.createdAt = createdAt;
+        this.version = version;
+        this.orderProductId = orderProductId;
+
+        this.productId = productId;
+        this.quantity = quantity;
+        this.unitPrice = unitPrice;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Double getCost() {
+        return cost;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public Long getOrderProductId() {
+        return orderProductId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public Double getUnitPrice() {
+        return unitPrice;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.order_service.dto;
+
+import java.util.List;
+
+public class OrderPageResponseDTO {
+    private final List<OrderResponseDTO> orders;
+    // Opaque token to pass as the cursor of the next request, null on the last page
+    private final String nextCursor;
+
+    public OrderPageResponseDTO(List<OrderResponseDTO> orders, String nextCursor) {
+        this.orders = orders;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<OrderResponseDTO> getOrders() {
+        return orders;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
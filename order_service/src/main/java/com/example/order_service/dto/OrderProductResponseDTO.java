@@ -0,0 +1,38 @@
+package com.example.order_service.dto;
+
+import com.example.order_service.entities.OrderProduct;
+
+public class OrderProductResponseDTO {
+    private final Long id;
+    private final Long productId;
+    private final int quantity;
+    private final Double unitPrice;
+
+    public OrderProductResponseDTO(Long id, Long productId, int quantity, Double unitPrice) {
+        this.id = id;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.unitPrice = unitPrice;
+    }
+
+    public static OrderProductResponseDTO from(OrderProduct orderProduct) {
+        return new OrderProductResponseDTO(orderProduct.getId(), orderProduct.getProductId(), orderProduct.getQuantity(),
+                orderProduct.getUnitPrice());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public Double getUnitPrice() {
+        return unitPrice;
+    }
+}
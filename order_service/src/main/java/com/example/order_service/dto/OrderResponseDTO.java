@@ -0,0 +1,79 @@
+package com.example.order_service.dto;
+
+import com.example.order_service.entities.Order;
+import com.example.order_service.entities.OrderProduct;
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+// Read-only view of an order, serialized in the same shape as the Order entity
+public class OrderResponseDTO {
+    private final Long id;
+    private final Long ownerId;
+    private final Long customerId;
+    private final String type;
+    private final double cost;
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm", timezone = "UTC")
+    private final Date createdAt;
+    private final long version;
+    private final List<OrderProductResponseDTO> orderProducts;
+
+    public OrderResponseDTO(Long id, Long ownerId, Long customerId, String type, double cost, Date createdAt,
+                            long version, List<OrderProductResponseDTO> orderProducts) {
+        this.id = id;
+        this.ownerId = ownerId;
+        this.customerId = customerId;
+        this.type = type;
+        this.cost = cost;
+        this.createdAt = createdAt;
+        this.version = version;
+        this.orderProducts = Collections.unmodifiableList(orderProducts);
+    }
+
+    // The order's products must already be loaded, typically through a fetch join
+    public static OrderResponseDTO from(Order order) {
+        List<OrderProductResponseDTO> orderProducts = new ArrayList<>();
+        if (order.getOrderProducts() != null) {
+            for (OrderProduct orderProduct : order.getOrderProducts()) {
+                orderProducts.add(OrderProductResponseDTO.from(orderProduct));
+            }
+        }
+        return new OrderResponseDTO(order.getId(), order.getOwnerId(), order.getCustomerId(), order.getType(),
+                order.getCost(), order.getCreatedAt(), order.getVersion(), orderProducts);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<OrderProductResponseDTO> getOrderProducts() {
+        return orderProducts;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.order_service.dto;
+
+import com.example.order_service.entities.Order;
+
+public class OrderStatusDTO {
+    private final Long id;
+    private final String status;
+    // Why the order was rejected, null otherwise
+    private final String message;
+
+    public OrderStatusDTO(Long id, String status, String message) {
+        this.id = id;
+        this.status = status == null ? Order.STATUS_ACCEPTED : status;
+        this.message = message;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
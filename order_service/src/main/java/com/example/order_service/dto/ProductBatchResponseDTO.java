@@ -0,0 +1,41 @@
+package com.example.order_service.dto;
+
+import com.example.order_service.entities.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductBatchResponseDTO {
+    private List<Product> products = new ArrayList<>();
+    private List<Long> missingIds = new ArrayList<>();
+    // Products whose ETag was sent in If-None-Match and has not changed
+    private List<Long> notModifiedIds = new ArrayList<>();
+
+    public ProductBatchResponseDTO() {
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public void setProducts(List<Product> products) {
+        this.products = products;
+    }
+
+    public List<Long> getMissingIds() {
+        return missingIds;
+    }
+
+    public void setMissingIds(List<Long> missingIds) {
+        this.missingIds = missingIds;
+    }
+
+    public List<Long> getNotModifiedIds() {
+        return notModifiedIds;
+    }
+
+    public void setNotModifiedIds(List<Long> notModifiedIds) {
+        this.notModifiedIds = notModifiedIds;
+    }
+
+}
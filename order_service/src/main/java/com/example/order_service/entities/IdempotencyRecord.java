@@ -0,0 +1,88 @@
+package com.example.order_service.entities;
+
+import javax.persistence.*;
+import java.util.Date;
+
+// The response first returned for an Idempotency-Key, replayed to retries that carry the same key
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+        @Index(name = "idx_idempotency_keys_created", columnList = "created_at")
+})
+public class IdempotencyRecord {
+    // <endpoint>:<client key>
+    @Id
+    @Column(length = 160)
+    private String id;
+    @Column(nullable = false)
+    private int status;
+    @Lob
+    private String body;
+    @Column(length = 500)
+    private String location;
+    // SHA-256 of the request body, a retry that reuses the key with another body is refused
+    @Column(name = "request_hash", length = 64)
+    private String requestHash;
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "created_at", nullable = false)
+    private Date createdAt;
+
+    public IdempotencyRecord() {
+    }
+
+    public IdempotencyRecord(String id, int status, String body, String location, String requestHash, Date createdAt) {
+        this.id = id;
+        this.status = status;
+        this.body = body;
+        this.location = location;
+        this.requestHash = requestHash;
+        this.createdAt = createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public void setRequestHash(String requestHash) {
+        this.requestHash = requestHash;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+}
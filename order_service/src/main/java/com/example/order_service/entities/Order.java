@@ -3,16 +3,33 @@ package com.example.order_service.entities;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import java.util.Date;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Keyset pagination of a customer's or owner's history seeks on (party, created_at, id)
+        @Index(name = "idx_orders_customer_created", columnList = "customerId, created_at, id"),
+        @Index(name = "idx_orders_owner_created", columnList = "ownerId, created_at, id"),
+        @Index(name = "idx_orders_status", columnList = "status")
+})
 public class Order {
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_ACCEPTED = "ACCEPTED";
+    public static final String STATUS_REJECTED = "REJECTED";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled ids are handed out 50 at a time, which lets Hibernate batch inserts (IDENTITY disables batching)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_id")
+    @GenericGenerator(name = "orders_id", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "orders_seq"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     private Long id;
     @Column(nullable = false)
     private Long ownerId;
@@ -27,6 +44,15 @@ public class Order {
     @Temporal(TemporalType.TIMESTAMP)
     @Column(name = "created_at", nullable = false, updatable = false)
     private Date createdAt;
+    // Orders submitted asynchronously stay PENDING until the acceptance pipeline has priced and validated them.
+    // Rows written before the column existed are null and count as accepted.
+    @Column(length = 16)
+    private String status;
+    private String statusMessage;
+    // The ETag of the order. Hibernate only increments it when a column of the order changes, so OrderService
+    // locks the orders it updates with a forced increment, which also covers changes to the lines alone.
+    @Version
+    private long version;
 
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonManagedReference
@@ -101,4 +127,28 @@ public class Order {
     public void setCreatedAt(Date createdAt) {
         this.createdAt = createdAt;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getStatusMessage() {
+        return statusMessage;
+    }
+
+    public void setStatusMessage(String statusMessage) {
+        this.statusMessage = statusMessage;
+    }
 }
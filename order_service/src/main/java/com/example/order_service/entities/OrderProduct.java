@@ -2,6 +2,8 @@ package com.example.order_service.entities;
 
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 
@@ -9,7 +11,12 @@ import javax.persistence.*;
 @Table(name = "order_products")
 public class OrderProduct {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_products_id")
+    @GenericGenerator(name = "order_products_id", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "order_products_seq"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     private Long id;
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "order_id", nullable = false)
@@ -19,6 +26,10 @@ public class OrderProduct {
     private Long productId;
     @Column(nullable = false)
     private int quantity;
+    // Price of one unit when the line was priced, so the order cost can be recomputed without asking
+    // product_service again. Null for lines written before the column existed.
+    @Column(name = "unit_price")
+    private Double unitPrice;
     // Constructors, getters, and setters
     public OrderProduct() {
     }
@@ -59,4 +70,12 @@ public class OrderProduct {
     public void setQuantity(int quantity) {
         this.quantity = quantity;
     }
+
+    public Double getUnitPrice() {
+        return unitPrice;
+    }
+
+    public void setUnitPrice(Double unitPrice) {
+        this.unitPrice = unitPrice;
+    }
 }
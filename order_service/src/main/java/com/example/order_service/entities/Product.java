@@ -32,6 +32,10 @@ public class Product {
     @Column(name = "created_at", nullable = false, updatable = false)
     private Date createdAt;
 
+    // Sent by product_service, used to revalidate cached products with If-None-Match
+    @Version
+    private long version;
+
     // Constructors, getters, and setters
 
     public Product() {
@@ -93,4 +97,13 @@ public class Product {
     public void setCreatedAt(Date createdAt) {
         this.createdAt = createdAt;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
 }
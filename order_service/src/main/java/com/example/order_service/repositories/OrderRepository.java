@@ -1,12 +1,95 @@
 package com.example.order_service.repositories;
 
+import com.example.order_service.dto.OrderExportRowDTO;
+import com.example.order_service.dto.OrderStatusDTO;
 import com.example.order_service.entities.Order;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
+    // Orders still pending or rejected by the acceptance pipeline are left out of reads, they only have a status.
+    // Rows written before the status column existed are null and count as accepted.
+    String ACCEPTED = "(o.status is null or o.status = '" + Order.STATUS_ACCEPTED + "')";
+
     List<Order> findByType(String type);
+
+    // Fetch joins load the orders and their products in a single statement instead of one extra select per order
+    @Query("select distinct o from Order o left join fetch o.orderProducts where " + ACCEPTED)
+    @QueryHints(@QueryHint(name = "hibernate.query.passDistinctThrough", value = "false"))
+    List<Order> findAllWithProducts();
+
+    @Query("select o from Order o left join fetch o.orderProducts where o.id = :id")
+    Optional<Order> findWithProductsById(@Param("id") Long id);
+
+    @Query("select distinct o from Order o left join fetch o.orderProducts where o.type = :type and " + ACCEPTED)
+    @QueryHints(@QueryHint(name = "hibernate.query.passDistinctThrough", value = "false"))
+    List<Order> findWithProductsByType(@Param("type") String type);
+
+    @Query("select distinct o from Order o left join fetch o.orderProducts where o.id in :ids")
+    @QueryHints(@QueryHint(name = "hibernate.query.passDistinctThrough", value = "false"))
+    List<Order> findWithProductsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Keyset pages of order ids, newest first. The next page starts strictly after the (createdAt, id) of the
+    // last row of the previous one, so deep pages cost the same as the first.
+    @Query("select o.id from Order o where o.customerId = :customerId and (:type is null or o.type = :type) and " + ACCEPTED
+            + " order by o.createdAt desc, o.id desc")
+    List<Long> findCustomerHistoryIds(@Param("customerId") Long customerId, @Param("type") String type, Pageable pageable);
+
+    @Query("select o.id from Order o where o.customerId = :customerId and (:type is null or o.type = :type) and " + ACCEPTED
+            + " and (o.createdAt < :createdAt or (o.createdAt = :createdAt and o.id < :id)) "
+            + "order by o.createdAt desc, o.id desc")
+    List<Long> findCustomerHistoryIdsAfter(@Param("customerId") Long customerId, @Param("type") String type,
+                                           @Param("createdAt") Date createdAt, @Param("id") Long id, Pageable pageable);
+
+    @Query("select o.id from Order o where o.ownerId = :ownerId and (:type is null or o.type = :type) and " + ACCEPTED
+            + " order by o.createdAt desc, o.id desc")
+    List<Long> findOwnerHistoryIds(@Param("ownerId") Long ownerId, @Param("type") String type, Pageable pageable);
+
+    @Query("select o.id from Order o where o.ownerId = :ownerId and (:type is null or o.type = :type) and " + ACCEPTED
+            + " and (o.createdAt < :createdAt or (o.createdAt = :createdAt and o.id < :id)) "
+            + "order by o.createdAt desc, o.id desc")
+    List<Long> findOwnerHistoryIdsAfter(@Param("ownerId") Long ownerId, @Param("type") String type,
+                                        @Param("createdAt") Date createdAt, @Param("id") Long id, Pageable pageable);
+
+    // Flat rows ordered by order id, read forward-only in chunks of the fetch size
+    @Query("select new com.example.order_service.dto.OrderExportRowDTO(o.id, o.ownerId, o.customerId, o.type, o.cost, o.createdAt, o.version, p.id, p.productId, p.quantity, p.unitPrice) "
+            + "from Order o left join o.orderProducts p where " + ACCEPTED + " order by o.id, p.id")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<OrderExportRowDTO> streamAllRows();
+
+    @Query("select new com.example.order_service.dto.OrderStatusDTO(o.id, o.status, o.statusMessage) from Order o where o.id = :id")
+    Optional<OrderStatusDTO> findStatusById(@Param("id") Long id);
+
+    // Version only, for answering If-None-Match without loading the order and its products
+    @Query("select o.version from Order o where o.id = :id and " + ACCEPTED)
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Query("select o.id from Order o where o.status = :status order by o.id")
+    List<Long> findIdsByStatus(@Param("status") String status, Pageable pageable);
+
+    // Lines first, the orders themselves are deleted by deleteByStatusCreatedBefore
+    @Modifying
+    @Transactional
+    @Query("delete from OrderProduct p where p.order.id in "
+            + "(select o.id from Order o where o.status = :status and o.createdAt < :createdAt)")
+    int deleteLinesByStatusCreatedBefore(@Param("status") String status, @Param("createdAt") Date createdAt);
+
+    @Modifying
+    @Transactional
+    @Query("delete from Order o where o.status = :status and o.createdAt < :createdAt")
+    int deleteByStatusCreatedBefore(@Param("status") String status, @Param("createdAt") Date createdAt);
 }
@@ -0,0 +1,80 @@
+package com.example.order_service.services;
+
+import com.example.order_service.AuthTokenFilter;
+import com.example.order_service.dto.AuthIdentity;
+import com.example.order_service.entities.Auth;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+@Service
+public class AuthClient {
+    private final RestTemplate restTemplate; // For direct calls
+    private final WebClient webClient; // For non-blocking direct calls
+    private final IdentityCache identityCache;
+    private final ConcurrencyLimiters limiters;
+    @Autowired
+    public AuthClient(@Qualifier("restTemplate") RestTemplate restTemplate, @Qualifier("webClient") WebClient webClient,
+                      IdentityCache identityCache, ConcurrencyLimiters limiters) {
+        this.restTemplate = restTemplate;
+        this.webClient = webClient;
+        this.identityCache = identityCache;
+        this.limiters = limiters;
+    }
+
+    public AuthIdentity getIdentity(Long id) {
+        AuthIdentity caller = callerIdentity(id);
+        return caller != null ? caller : identityCache.get(id, this::fetchIdentity);
+    }
+
+    public Mono<AuthIdentity> getIdentityReactive(Long id) {
+        // Checked on the calling thread, which holds the security context
+        AuthIdentity caller = callerIdentity(id);
+        if (caller != null) {
+            return Mono.just(caller);
+        }
+        return Mono.fromFuture(() -> identityCache.getAsync(id, key -> fetchIdentityReactive(key).toFuture()));
+    }
+
+    // The caller's own identity comes with its verified token, only other ids need auth-service
+    private static AuthIdentity callerIdentity(Long id) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication instanceof AuthTokenFilter.TokenAuthentication && authentication.getPrincipal().equals(id)) {
+            return AuthIdentity.of(((AuthTokenFilter.TokenAuthentication) authentication).getAuthType());
+        }
+        return null;
+    }
+
+    private Mono<AuthIdentity> fetchIdentityReactive(Long id) {
+        String authUrl = "http://localhost:8002/authService/api/auth/" + id;
+        return limiters.get("auth-service").callReactive(() -> webClient.get().uri(authUrl)
+                .retrieve()
+                .bodyToMono(Auth.class)
+                .map(auth -> AuthIdentity.of(auth.getAuthType()))
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.just(AuthIdentity.missing()))
+                .defaultIfEmpty(AuthIdentity.missing()));
+    }
+
+    private AuthIdentity fetchIdentity(Long id) {
+        String authUrl = "http://localhost:8002/authService/api/auth/" + id;
+        return limiters.get("auth-service").call(() -> {
+            try {
+                ResponseEntity<Auth> authResponse = restTemplate.getForEntity(authUrl, Auth.class);
+                if (authResponse.getStatusCode().is2xxSuccessful() && authResponse.getBody() != null) {
+                    return AuthIdentity.of(authResponse.getBody().getAuthType());
+                }
+                return AuthIdentity.missing();
+            } catch (HttpClientErrorException.NotFound e) {
+                return AuthIdentity.missing();
+            }
+        });
+    }
+}
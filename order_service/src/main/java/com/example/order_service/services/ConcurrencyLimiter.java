@@ -0,0 +1,187 @@
+package com.example.order_service.services;
+
+import org.springframework.web.client.HttpServerErrorException;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Adaptive limit on concurrent calls, in the style of a gradient limiter: while the recent latency stays close to
+// the no-load latency (the lowest seen over the last minute or so) the limit grows, when it rises above it, because
+// requests are queueing somewhere, the limit shrinks in proportion. Timeouts, I/O errors and 5xx responses cut the
+// limit multiplicatively. Calls over the limit are rejected immediately with a LimitExceededException.
+public class ConcurrencyLimiter {
+    private static final double SMOOTHING = 0.2;
+    private static final double TOLERANCE = 1.5;
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final double SHORT_WINDOW = 10;
+    private static final long BASELINE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile int limit;
+    // Guarded by this
+    private double estimatedLimit;
+    private double shortRttNanos;
+    // Minimum latency of the current and of the previous baseline window
+    private long windowMinRttNanos = Long.MAX_VALUE;
+    private long previousWindowMinRttNanos = Long.MAX_VALUE;
+    private long windowStartNanos = System.nanoTime();
+
+    public ConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit) {
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    public Permit acquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.incrementAndGet();
+                throw new LimitExceededException(name + " is over its concurrency limit of " + limit);
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(current + 1);
+            }
+        }
+    }
+
+    public <T> T call(Supplier<T> work) {
+        Permit permit = acquire();
+        try {
+            T result = work.get();
+            permit.success();
+            return result;
+        } catch (RuntimeException e) {
+            permit.failure(e);
+            throw e;
+        }
+    }
+
+    public <T> Mono<T> callReactive(Supplier<Mono<T>> work) {
+        return Mono.defer(() -> {
+            Permit permit = acquire();
+            return work.get()
+                    .doOnSuccess(result -> permit.success())
+                    .doOnError(permit::failure)
+                    .doOnCancel(permit::ignore);
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtStart) {
+        shortRttNanos = shortRttNanos == 0 ? rttNanos : shortRttNanos + (rttNanos - shortRttNanos) / SHORT_WINDOW;
+        // The baseline forgets old minimums window by window, so it follows a dependency that got slower for good
+        long now = System.nanoTime();
+        if (now - windowStartNanos > BASELINE_WINDOW_NANOS) {
+            previousWindowMinRttNanos = windowMinRttNanos;
+            windowMinRttNanos = Long.MAX_VALUE;
+            windowStartNanos = now;
+        }
+        windowMinRttNanos = Math.min(windowMinRttNanos, rttNanos);
+        long baselineRttNanos = Math.min(windowMinRttNanos, previousWindowMinRttNanos);
+        // Nothing is learned about the limit while well below it
+        if (inFlightAtStart < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * baselineRttNanos / shortRttNanos));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        setEstimatedLimit(estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+    }
+
+    private synchronized void onDropped() {
+        setEstimatedLimit(estimatedLimit * BACKOFF_RATIO);
+    }
+
+    private void setEstimatedLimit(double newLimit) {
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    // Whether a failure means the dependency is overloaded or unreachable, as opposed to a rejected request. A call
+    // shed by a nested limiter, say the auth-service limiter inside create-order, is that limiter's overload: it has
+    // already backed off, so the outer limit is left as it is.
+    static boolean isOverload(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof LimitExceededException) {
+                return false;
+            }
+            if (cause instanceof IOException || cause instanceof TimeoutException
+                    || cause instanceof RejectedExecutionException || cause instanceof HttpServerErrorException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Thrown for calls over the limit. Callers that only care about load shedding can catch RejectedExecutionException.
+    public static class LimitExceededException extends RejectedExecutionException {
+        private static final long serialVersionUID = 1L;
+
+        public LimitExceededException(String message) {
+            super(message);
+        }
+    }
+
+    // One admitted call. Exactly one of success, failure or ignore takes effect, later calls are no-ops.
+    public class Permit {
+        private final long startNanos = System.nanoTime();
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        public void success() {
+            if (release()) {
+                onSample(System.nanoTime() - startNanos, inFlightAtStart);
+            }
+        }
+
+        public void failure(Throwable e) {
+            if (release() && isOverload(e)) {
+                onDropped();
+            }
+        }
+
+        public void ignore() {
+            release();
+        }
+
+        private boolean release() {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.order_service.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// One adaptive limiter per downstream dependency and per guarded endpoint, created on first use
+@Component
+public class ConcurrencyLimiters {
+    private final Map<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    @Autowired
+    public ConcurrencyLimiters(MeterRegistry meterRegistry,
+                               @Value("${concurrency.limit.initial:20}") int initialLimit,
+                               @Value("${concurrency.limit.min:4}") int minLimit,
+                               @Value("${concurrency.limit.max:200}") int maxLimit) {
+        this.meterRegistry = meterRegistry;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    public ConcurrencyLimiter get(String name) {
+        return limiters.computeIfAbsent(name, this::create);
+    }
+
+    private ConcurrencyLimiter create(String name) {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(name, initialLimit, minLimit, maxLimit);
+        Gauge.builder("concurrency.limit", limiter, ConcurrencyLimiter::getLimit)
+                .tag("limiter", name).register(meterRegistry);
+        Gauge.builder("concurrency.inflight", limiter, ConcurrencyLimiter::getInFlight)
+                .tag("limiter", name).register(meterRegistry);
+        FunctionCounter.builder("concurrency.rejected", limiter, ConcurrencyLimiter::getRejected)
+                .tag("limiter", name).register(meterRegistry);
+        return limiter;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.order_service.services;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+// Tells the failures of auth-service and product-service lookups that are worth retrying from those caused by the
+// order itself. Timeouts, unreachable or failing services and shed load are transient, a 4xx answer or a missing
+// product or party is not. OrderController answers the transient ones with 504/503, OrderAcceptanceService leaves
+// the order pending for them.
+public final class DownstreamFailures {
+
+    private DownstreamFailures() {
+    }
+
+    // GATEWAY_TIMEOUT or SERVICE_UNAVAILABLE for a transient failure anywhere in the cause chain, otherwise null
+    public static HttpStatus transientStatus(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof SocketTimeoutException) {
+                return HttpStatus.GATEWAY_TIMEOUT;
+            }
+            if (cause instanceof IOException || cause instanceof ResourceAccessException
+                    || cause instanceof HttpServerErrorException || cause instanceof RejectedExecutionException
+                    || cause instanceof WebClientRequestException
+                    || cause instanceof WebClientResponseException
+                    && ((WebClientResponseException) cause).getStatusCode().is5xxServerError()) {
+                return HttpStatus.SERVICE_UNAVAILABLE;
+            }
+        }
+        return null;
+    }
+
+    public static boolean isTransient(Throwable e) {
+        return transientStatus(e) != null;
+    }
+}
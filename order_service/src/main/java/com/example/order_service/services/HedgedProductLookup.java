@@ -0,0 +1,166 @@
+package com.example.order_service.services;
+
+import com.example.order_service.dto.ProductBatchResponseDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+// Product batch lookups with request hedging: the lookup goes to one product_service instance, and if it has not
+// answered within the recent p95 (by default) latency, the same lookup is sent to a different instance and the first
+// answer wins, the other request is cancelled. A token budget keeps hedges to a fraction of all lookups so a slow
+// cluster is not hit with double the load.
+@Component
+public class HedgedProductLookup {
+    // The Ribbon client that points at product_service
+    private static final String SERVICE_ID = "order-service";
+    private static final String BATCH_PATH = "/productService/api/products/batch";
+    private static final double MAX_TOKENS = 10;
+
+    private final LoadBalancerClient loadBalancerClient;
+    private final WebClient webClient;
+    private final boolean enabled;
+    private final long minDelayNanos;
+    private final double budgetRatio;
+    private final Timer attemptLatency;
+    private final Counter fired;
+    private final Counter won;
+    private final Counter budgetExhausted;
+    // Guarded by this
+    private double tokens;
+    private volatile long delayNanos;
+    private volatile long delayRefreshedAt;
+    @Autowired
+    public HedgedProductLookup(LoadBalancerClient loadBalancerClient, @Qualifier("webClient") WebClient webClient,
+                               MeterRegistry meterRegistry,
+                               @Value("${order.product-hedge.enabled:false}") boolean enabled,
+                               @Value("${order.product-hedge.percentile:95}") double percentile,
+                               @Value("${order.product-hedge.min-delay-ms:20}") long minDelayMs,
+                               @Value("${order.product-hedge.budget-percent:10}") double budgetPercent) {
+        this.loadBalancerClient = loadBalancerClient;
+        this.webClient = webClient;
+        this.enabled = enabled;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMs);
+        this.budgetRatio = budgetPercent / 100;
+        this.delayNanos = minDelayNanos;
+        this.attemptLatency = Timer.builder("order.product-hedge.latency")
+                .publishPercentiles(percentile / 100)
+                .register(meterRegistry);
+        this.fired = Counter.builder("order.product-hedge").tag("outcome", "fired").register(meterRegistry);
+        this.won = Counter.builder("order.product-hedge").tag("outcome", "won").register(meterRegistry);
+        this.budgetExhausted = Counter.builder("order.product-hedge").tag("outcome", "budget_exhausted").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Mono<ProductBatchResponseDTO> fetch(List<Long> ids) {
+        return fetch(ids, Collections.emptyList());
+    }
+
+    // etags are sent as If-None-Match on every attempt
+    public Mono<ProductBatchResponseDTO> fetch(List<Long> ids, List<String> etags) {
+        ServiceInstance primary = loadBalancerClient.choose(SERVICE_ID);
+        if (primary == null) {
+            return Mono.error(new IllegalStateException("No instances available for " + SERVICE_ID));
+        }
+        deposit();
+        Mono<Attempt> first = post(primary, ids, etags).map(response -> new Attempt(response, false));
+        Mono<Attempt> hedge = Mono.delay(Duration.ofNanos(hedgeDelayNanos())).flatMap(tick -> {
+            ServiceInstance other = chooseOther(primary);
+            if (other == null || !withdraw()) {
+                return Mono.empty();
+            }
+            fired.increment();
+            return post(other, ids, etags).map(response -> new Attempt(response, true));
+        });
+        return Mono.firstWithValue(first, hedge)
+                .doOnNext(attempt -> {
+                    if (attempt.hedge) {
+                        won.increment();
+                    }
+                })
+                .map(attempt -> attempt.response)
+                // When every attempt failed, report the primary's error rather than a generic one
+                .onErrorMap(NoSuchElementException.class,
+                        e -> e.getCause() != null ? Exceptions.unwrapMultiple(e.getCause()).get(0) : e);
+    }
+
+    private Mono<ProductBatchResponseDTO> post(ServiceInstance instance, List<Long> ids, List<String> etags) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return webClient.post().uri(instance.getUri() + BATCH_PATH)
+                    .headers(headers -> {
+                        if (!etags.isEmpty()) {
+                            headers.setIfNoneMatch(etags);
+                        }
+                    })
+                    .bodyValue(ids)
+                    .retrieve()
+                    .bodyToMono(ProductBatchResponseDTO.class)
+                    .doOnNext(response -> attemptLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    private ServiceInstance chooseOther(ServiceInstance primary) {
+        for (int i = 0; i < 3; i++) {
+            ServiceInstance candidate = loadBalancerClient.choose(SERVICE_ID);
+            if (candidate != null && !(candidate.getHost().equals(primary.getHost()) && candidate.getPort() == primary.getPort())) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    // The delay follows the configured latency percentile of single attempts, re-read at most once a second
+    private long hedgeDelayNanos() {
+        long now = System.nanoTime();
+        if (now - delayRefreshedAt > TimeUnit.SECONDS.toNanos(1)) {
+            ValueAtPercentile[] percentiles = attemptLatency.takeSnapshot().percentileValues();
+            double observed = percentiles.length > 0 ? percentiles[0].value(TimeUnit.NANOSECONDS) : 0;
+            delayNanos = Math.max(minDelayNanos, (long) observed);
+            delayRefreshedAt = now;
+        }
+        return delayNanos;
+    }
+
+    // Every lookup earns a fraction of a hedge, every hedge spends a whole one
+    private synchronized void deposit() {
+        tokens = Math.min(MAX_TOKENS, tokens + budgetRatio);
+    }
+
+    private synchronized boolean withdraw() {
+        if (tokens < 1) {
+            budgetExhausted.increment();
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    private static class Attempt {
+        private final ProductBatchResponseDTO response;
+        private final boolean hedge;
+
+        Attempt(ProductBatchResponseDTO response, boolean hedge) {
+            this.response = response;
+            this.hedge = hedge;
+        }
+    }
+}
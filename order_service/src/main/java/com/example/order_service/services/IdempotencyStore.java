@@ -0,0 +1,193 @@
+package com.example.order_service.services;
+
+import com.example.order_service.entities.IdempotencyRecord;
+import com.example.order_service.repositories.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Replays the first response to requests that repeat an Idempotency-Key. Completed responses are kept in memory and
+// in the idempotency_keys table for the TTL, and a duplicate that arrives while the first attempt is still running
+// waits for that attempt instead of repeating its downstream calls. Server errors are handed to waiting duplicates
+// but not remembered, so a later retry runs again.
+@Component
+public class IdempotencyStore {
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+    public static final String HEADER = "Idempotency-Key";
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyRecordRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, IdempotencyRecord> completed;
+    // First attempt per key that has not finished yet
+    private final Map<String, CompletableFuture<IdempotencyRecord>> inFlight = new ConcurrentHashMap<>();
+    private final long ttlMs;
+    private final Duration waitTimeout;
+    private final Counter replayed;
+    @Autowired
+    public IdempotencyStore(IdempotencyRecordRepository repository, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                            @Value("${idempotency.cache.max-size:100000}") long maxSize,
+                            @Value("${idempotency.ttl-seconds:86400}") long ttlSeconds,
+                            @Value("${idempotency.wait-timeout-ms:10000}") long waitTimeoutMs) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.ttlMs = Duration.ofSeconds(ttlSeconds).toMillis();
+        this.waitTimeout = Duration.ofMillis(waitTimeoutMs);
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, completed, "idempotency.cache");
+        this.replayed = Counter.builder("idempotency.replayed").register(meterRegistry);
+    }
+
+    // scope names the endpoint, so the same client key on two endpoints is two different requests. requestBody is
+    // hashed and kept with the response, a retry that reuses the key with another body gets 422 instead of a replay.
+    public <T> Mono<ResponseEntity<T>> execute(String scope, String key, Object requestBody, Class<T> bodyType,
+                                               Supplier<Mono<ResponseEntity<T>>> request) {
+        if (key == null) {
+            return request.get();
+        }
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        String id = scope + ":" + key;
+        // Hashed before the request runs, it may change the body
+        String requestHash = hash(requestBody);
+        return Mono.defer(() -> {
+            IdempotencyRecord done = completed.getIfPresent(id);
+            if (done != null) {
+                return Mono.just(replay(done, requestHash, bodyType));
+            }
+            CompletableFuture<IdempotencyRecord> attempt = new CompletableFuture<>();
+            CompletableFuture<IdempotencyRecord> first = inFlight.putIfAbsent(id, attempt);
+            if (first != null) {
+                // Waits on a copy, so a duplicate that gives up does not cancel the first attempt
+                return Mono.fromFuture(first.thenApply(record -> record))
+                        .map(record -> replay(record, requestHash, bodyType))
+                        .timeout(waitTimeout, Mono.fromSupplier(() -> ResponseEntity.status(HttpStatus.CONFLICT).<T>build()));
+            }
+            Optional<IdempotencyRecord> stored = findStored(id);
+            if (stored.isPresent()) {
+                completed.put(id, stored.get());
+                attempt.complete(stored.get());
+                inFlight.remove(id, attempt);
+                return Mono.just(replay(stored.get(), requestHash, bodyType));
+            }
+            return request.get()
+                    .map(response -> {
+                        attempt.complete(remember(id, requestHash, response));
+                        return response;
+                    })
+                    .doOnError(attempt::completeExceptionally)
+                    .doFinally(signal -> {
+                        if (!attempt.isDone()) {
+                            attempt.completeExceptionally(new IllegalStateException("Request " + id + " did not complete"));
+                        }
+                        inFlight.remove(id, attempt);
+                    });
+        });
+    }
+
+    // Drops keys past the TTL from the table, the in-memory copies expire on their own
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-ms:3600000}", initialDelayString = "${idempotency.cleanup-ms:3600000}")
+    public void deleteExpired() {
+        int deleted = repository.deleteOlderThan(new Date(System.currentTimeMillis() - ttlMs));
+        if (deleted > 0) {
+            log.info("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    private Optional<IdempotencyRecord> findStored(String id) {
+        return repository.findById(id).filter(record -> record.getCreatedAt().getTime() > System.currentTimeMillis() - ttlMs);
+    }
+
+    private IdempotencyRecord remember(String id, String requestHash, ResponseEntity<?> response) {
+        URI location = response.getHeaders().getLocation();
+        IdempotencyRecord record = new IdempotencyRecord(id, response.getStatusCodeValue(), toJson(response.getBody()),
+                location != null ? location.toString() : null, requestHash, new Date());
+        if (response.getStatusCode().is5xxServerError()) {
+            return record;
+        }
+        completed.put(id, record);
+        try {
+            repository.save(record);
+        } catch (RuntimeException e) {
+            // Still replayed from memory on this instance
+            log.warn("Could not store idempotency key {}: {}", id, e.getMessage());
+        }
+        return record;
+    }
+
+    private <T> ResponseEntity<T> replay(IdempotencyRecord record, String requestHash, Class<T> bodyType) {
+        // Keys stored before bodies were hashed have no hash to compare
+        if (record.getRequestHash() != null && !record.getRequestHash().equals(requestHash)) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+        }
+        replayed.increment();
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(record.getStatus()).header(REPLAYED_HEADER, "true");
+        if (record.getLocation() != null) {
+            response.header(HttpHeaders.LOCATION, record.getLocation());
+        }
+        if (record.getBody() == null) {
+            return response.build();
+        }
+        try {
+            return response.body(objectMapper.readValue(record.getBody(), bodyType));
+        } catch (IOException e) {
+            throw new IllegalStateException("Stored response for " + record.getId() + " is unreadable", e);
+        }
+    }
+
+    private String hash(Object requestBody) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(requestBody));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Request body cannot be hashed", e);
+        }
+    }
+
+    private String toJson(Object body) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response body cannot be stored", e);
+        }
+    }
+}
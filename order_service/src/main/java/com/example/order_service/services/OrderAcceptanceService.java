@@ -0,0 +1,160 @@
+package com.example.order_service.services;
+
+import com.example.order_service.dto.OrderStatusDTO;
+import com.example.order_service.entities.Order;
+import com.example.order_service.entities.OrderProduct;
+import com.example.order_service.repositories.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+// Accepts orders without waiting for pricing: the order is stored as PENDING and a bounded worker pool
+// validates, prices and finalizes it. Pending orders live in the database, so nothing is lost on restart.
+@Service
+public class OrderAcceptanceService {
+    private static final Logger log = LoggerFactory.getLogger(OrderAcceptanceService.class);
+    private final OrderRepository orderRepository;
+    private final OrderService orderService;
+    private final OrderViewCache orderViewCache;
+    private final ThreadPoolExecutor acceptanceExecutor;
+    private final long rejectedRetentionMs;
+    // Ids queued or being processed, so the sweep does not enqueue an order twice
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    @Autowired
+    public OrderAcceptanceService(OrderRepository orderRepository, OrderService orderService, OrderViewCache orderViewCache,
+                                  @Qualifier("orderAcceptanceExecutor") ThreadPoolExecutor acceptanceExecutor,
+                                  @Value("${order.async.rejected-retention-hours:24}") long rejectedRetentionHours) {
+        this.orderRepository = orderRepository;
+        this.orderService = orderService;
+        this.orderViewCache = orderViewCache;
+        this.acceptanceExecutor = acceptanceExecutor;
+        this.rejectedRetentionMs = rejectedRetentionHours * 3_600_000;
+    }
+
+    public OrderStatusDTO submitOrder(Order order) {
+        if (order.getOrderProducts() == null || order.getOrderProducts().isEmpty()) {
+            throw new IllegalArgumentException("Order has no products");
+        }
+        // Backpressure: refuse before storing anything when the workers are already behind
+        if (acceptanceExecutor.getQueue().remainingCapacity() == 0) {
+            throw new RejectedExecutionException("Order acceptance queue is full");
+        }
+        order.setId(null);
+        order.setStatus(Order.STATUS_PENDING);
+        order.setStatusMessage(null);
+        order.setType("pending");
+        order.setCost(0.0);
+        for (OrderProduct orderProduct : order.getOrderProducts()) {
+            orderProduct.setOrder(order);
+            orderProduct.setId(null);
+        }
+        Order saved = orderRepository.save(order);
+        // Taken before enqueueing, a worker may accept the order before this method returns
+        OrderStatusDTO status = new OrderStatusDTO(saved.getId(), saved.getStatus(), null);
+        enqueue(saved.getId());
+        return status;
+    }
+
+    public Optional<OrderStatusDTO> getStatus(Long id) {
+        return orderRepository.findStatusById(id);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingOrders() {
+        enqueuePending();
+    }
+
+    // Picks up orders that could not be queued when submitted, or that failed on a transient error
+    @Scheduled(fixedDelayString = "${order.async.sweep-ms:30000}", initialDelayString = "${order.async.sweep-ms:30000}")
+    public void sweepPendingOrders() {
+        enqueuePending();
+    }
+
+    // Rejected orders are only kept for their submitters to read why, then deleted with their lines
+    @Scheduled(fixedDelayString = "${order.async.purge-ms:3600000}", initialDelayString = "${order.async.purge-ms:3600000}")
+    @Transactional
+    public void purgeRejectedOrders() {
+        Date createdBefore = new Date(System.currentTimeMillis() - rejectedRetentionMs);
+        orderRepository.deleteLinesByStatusCreatedBefore(Order.STATUS_REJECTED, createdBefore);
+        int deleted = orderRepository.deleteByStatusCreatedBefore(Order.STATUS_REJECTED, createdBefore);
+        if (deleted > 0) {
+            log.info("Deleted {} rejected orders", deleted);
+        }
+    }
+
+    private void enqueuePending() {
+        int free = acceptanceExecutor.getQueue().remainingCapacity();
+        if (free == 0) {
+            return;
+        }
+        for (Long id : orderRepository.findIdsByStatus(Order.STATUS_PENDING, PageRequest.of(0, free))) {
+            if (!enqueue(id)) {
+                break;
+            }
+        }
+    }
+
+    private boolean enqueue(Long id) {
+        if (!inFlight.add(id)) {
+            return true;
+        }
+        try {
+            acceptanceExecutor.execute(() -> {
+                try {
+                    process(id);
+                } finally {
+                    inFlight.remove(id);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Stays PENDING in the database and is retried by the sweep
+            inFlight.remove(id);
+            return false;
+        }
+    }
+
+    void process(Long id) {
+        Optional<Order> pending = orderRepository.findWithProductsById(id);
+        if (!pending.isPresent() || !Order.STATUS_PENDING.equals(pending.get().getStatus())) {
+            return;
+        }
+        Order order = pending.get();
+        try {
+            orderService.priceOrder(order);
+            order.setStatus(Order.STATUS_ACCEPTED);
+        } catch (RuntimeException e) {
+            if (DownstreamFailures.isTransient(e)) {
+                // A lookup timed out, or auth-service, product-service or the lookup pool is unavailable or
+                // shedding load. Try again on the next sweep.
+                log.warn("Order {} left pending: {}", id, e.getMessage());
+                return;
+            }
+            // A 4xx answer or a missing product or party, retrying would not change it
+            reject(order, e);
+        }
+        orderRepository.save(order);
+        orderViewCache.invalidate(id);
+    }
+
+    private void reject(Order order, RuntimeException e) {
+        log.info("Order {} rejected: {}", order.getId(), e.getMessage());
+        order.setStatus(Order.STATUS_REJECTED);
+        order.setStatusMessage(e.getMessage());
+    }
+}
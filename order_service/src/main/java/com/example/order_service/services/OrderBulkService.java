@@ -0,0 +1,166 @@
+package com.example.order_service.services;
+
+import com.example.order_service.dto.AuthIdentity;
+import com.example.order_service.dto.BulkOrderResultDTO;
+import com.example.order_service.entities.Order;
+import com.example.order_service.entities.OrderProduct;
+import com.example.order_service.entities.Product;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+@Service
+public class OrderBulkService {
+    private static final Logger log = LoggerFactory.getLogger(OrderBulkService.class);
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final AuthClient authClient;
+    private final ProductClient productClient;
+    private final ExecutorService lookupExecutor;
+    private final int batchSize;
+    private final int chunkSize;
+    @Autowired
+    public OrderBulkService(EntityManager entityManager, PlatformTransactionManager transactionManager,
+                            AuthClient authClient, ProductClient productClient,
+                            @Qualifier("orderLookupExecutor") ExecutorService lookupExecutor,
+                            @Value("${order.bulk.batch-size:50}") int batchSize,
+                            @Value("${order.bulk.chunk-size:500}") int chunkSize) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.authClient = authClient;
+        this.productClient = productClient;
+        this.lookupExecutor = lookupExecutor;
+        this.batchSize = batchSize;
+        this.chunkSize = chunkSize;
+    }
+
+    public List<BulkOrderResultDTO> createOrders(List<Order> orders) {
+        BulkOrderResultDTO[] results = new BulkOrderResultDTO[orders.size()];
+
+        // Every distinct product and party is looked up once for the whole submission
+        Set<Long> productIds = new LinkedHashSet<>();
+        Set<Long> partyIds = new LinkedHashSet<>();
+        for (Order order : orders) {
+            partyIds.add(order.getOwnerId());
+            partyIds.add(order.getCustomerId());
+            if (order.getOrderProducts() != null) {
+                for (OrderProduct orderProduct : order.getOrderProducts()) {
+                    productIds.add(orderProduct.getProductId());
+                }
+            }
+        }
+        Map<Long, Product> products = productClient.findProducts(productIds);
+        Map<Long, AuthIdentity> parties = findIdentities(partyIds);
+
+        List<Integer> accepted = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            String error = priceOrder(orders.get(i), products, parties);
+            if (error == null) {
+                accepted.add(i);
+            } else {
+                results[i] = BulkOrderResultDTO.rejected(i, error);
+            }
+        }
+
+        for (int from = 0; from < accepted.size(); from += chunkSize) {
+            List<Integer> chunk = accepted.subList(from, Math.min(from + chunkSize, accepted.size()));
+            try {
+                persistChunk(orders, chunk);
+                for (Integer i : chunk) {
+                    results[i] = BulkOrderResultDTO.created(i, orders.get(i).getId());
+                }
+            } catch (RuntimeException e) {
+                // A failed chunk is rolled back as a whole, earlier chunks stay committed
+                for (Integer i : chunk) {
+                    results[i] = BulkOrderResultDTO.failed(i, e.getMessage());
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private void persistChunk(List<Order> orders, List<Integer> chunk) {
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            for (Integer i : chunk) {
+                entityManager.persist(orders.get(i));
+            }
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+
+    // Sets cost, type and back references, or returns why the order is rejected
+    private String priceOrder(Order order, Map<Long, Product> products, Map<Long, AuthIdentity> parties) {
+        if (order.getOrderProducts() == null || order.getOrderProducts().isEmpty()) {
+            return "Order has no products";
+        }
+        AuthIdentity owner = parties.get(order.getOwnerId());
+        AuthIdentity customer = parties.get(order.getCustomerId());
+        if (owner == null || !owner.exists() || customer == null || !customer.exists()) {
+            return "Owner or customer not found in auth-service";
+        }
+        double totalCost = 0.0;
+        for (OrderProduct orderProduct : order.getOrderProducts()) {
+            Product product = products.get(orderProduct.getProductId());
+            if (product == null) {
+                return "Product not found: " + orderProduct.getProductId();
+            }
+            totalCost += product.getPrice() * orderProduct.getQuantity();
+            orderProduct.setUnitPrice(product.getPrice());
+            orderProduct.setOrder(order);
+            // Ids echoed back by the client would make the lines look detached, they are always inserted
+            orderProduct.setId(null);
+        }
+        try {
+            order.setType(OrderService.orderType(owner, customer));
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+        order.setId(null);
+        order.setCost(totalCost);
+        order.setStatus(Order.STATUS_ACCEPTED);
+        return null;
+    }
+
+    private Map<Long, AuthIdentity> findIdentities(Set<Long> partyIds) {
+        Map<Long, AuthIdentity> identities = new HashMap<>();
+        List<Long> ids = new ArrayList<>(partyIds);
+        // Looked up concurrently, in waves so a large submission cannot overflow the lookup pool's queue
+        int wave = 64;
+        for (int from = 0; from < ids.size(); from += wave) {
+            List<Long> waveIds = ids.subList(from, Math.min(from + wave, ids.size()));
+            List<CompletableFuture<AuthIdentity>> lookups = new ArrayList<>();
+            for (Long id : waveIds) {
+                lookups.add(CompletableFuture.supplyAsync(() -> authClient.getIdentity(id), lookupExecutor));
+            }
+            for (int i = 0; i < waveIds.size(); i++) {
+                try {
+                    identities.put(waveIds.get(i), lookups.get(i).join());
+                } catch (CompletionException e) {
+                    // Left out of the map, the orders referring to this id are rejected
+                    log.warn("Error looking up auth {}: {}", waveIds.get(i), e.getCause().getMessage());
+                }
+            }
+        }
+        return identities;
+    }
+}
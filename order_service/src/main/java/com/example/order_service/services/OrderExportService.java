@@ -0,0 +1,74 @@
+package com.example.order_service.services;
+
+import com.example.order_service.dto.OrderExportRowDTO;
+import com.example.order_service.dto.OrderProductResponseDTO;
+import com.example.order_service.dto.OrderResponseDTO;
+import com.example.order_service.repositories.OrderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Service
+public class OrderExportService {
+    private static final int FLUSH_EVERY = 100;
+
+    private final OrderRepository orderRepository;
+    private final ObjectWriter orderWriter;
+    @Autowired
+    public OrderExportService(OrderRepository orderRepository, ObjectMapper objectMapper) {
+        this.orderRepository = orderRepository;
+        this.orderWriter = objectMapper.writerFor(OrderResponseDTO.class);
+    }
+
+    // Writes every order as one JSON line while reading them through a database cursor.
+    // Rows are plain DTOs rather than managed entities, so neither the persistence context
+    // nor the heap grows with the size of the table.
+    @Transactional(readOnly = true)
+    public void exportOrders(OutputStream out) throws IOException {
+        try (Stream<OrderExportRowDTO> rows = orderRepository.streamAllRows()) {
+            Iterator<OrderExportRowDTO> iterator = rows.iterator();
+            OrderExportRowDTO current = null;
+            List<OrderProductResponseDTO> orderProducts = new ArrayList<>();
+            int written = 0;
+            while (iterator.hasNext()) {
+                OrderExportRowDTO row = iterator.next();
+                if (current == null || !current.getOrderId().equals(row.getOrderId())) {
+                    if (current != null) {
+                        writeOrder(out, current, orderProducts);
+                        orderProducts = new ArrayList<>();
+                        // Flush right after the first order so the client starts receiving data immediately
+                        if (++written % FLUSH_EVERY == 1) {
+                            out.flush();
+                        }
+                    }
+                    current = row;
+                }
+                if (row.getOrderProductId() != null) {
+                    orderProducts.add(new OrderProductResponseDTO(row.getOrderProductId(), row.getProductId(), row.getQuantity(),
+                            row.getUnitPrice()));
+                }
+            }
+            if (current != null) {
+                writeOrder(out, current, orderProducts);
+            }
+            out.flush();
+        }
+    }
+
+    private void writeOrder(OutputStream out, OrderExportRowDTO row, List<OrderProductResponseDTO> orderProducts) throws IOException {
+        OrderResponseDTO order = new OrderResponseDTO(row.getOrderId(), row.getOwnerId(), row.getCustomerId(),
+                row.getType(), row.getCost(), row.getCreatedAt(), row.getVersion(), orderProducts);
+
+        out.write(orderWriter.writeValueAsBytes(order));
+        out.write('\n');
+    }
+}
@@ -1,129 +1,259 @@
 package com.example.order_service.services;
 
-import com.example.order_service.entities.Auth;
+import com.example.order_service.dto.AuthIdentity;
+import com.example.order_service.dto.OrderPageResponseDTO;
+import com.example.order_service.dto.OrderResponseDTO;
 import com.example.order_service.entities.Order;
 import com.example.order_service.entities.OrderProduct;
 import com.example.order_service.entities.Product;
 import com.example.order_service.repositories.OrderRepository;
-import com.netflix.hystrix.contrib.javanica.annotation.HystrixCommand;
-import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.transaction.Transactional;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class OrderService {
     private final OrderRepository orderRepository;
+    private final EntityManager entityManager;
+    private final AuthClient authClient;
+    private final ProductClient productClient;
+    private final OrderViewCache orderViewCache;
+    private final ExecutorService lookupExecutor;
+    private final long lookupTimeoutMs;
     @Autowired
-    @Qualifier("restTemplate")
-    private RestTemplate restTemplate; // For direct calls
-    @Autowired
-    @Qualifier("loadBalancedRestTemplate")
-    private RestTemplate loadBalancedRestTemplate; // For load balanced calls
-    @Autowired
-    public OrderService(OrderRepository orderRepository, RestTemplate restTemplate) {
+    public OrderService(OrderRepository orderRepository, EntityManager entityManager, AuthClient authClient,
+                        ProductClient productClient, OrderViewCache orderViewCache,
+                        @Qualifier("orderLookupExecutor") ExecutorService lookupExecutor,
+                        @Value("${order.lookup.timeout-ms:800}") long lookupTimeoutMs) {
         this.orderRepository = orderRepository;
-        this.restTemplate = restTemplate;
+        this.entityManager = entityManager;
+        this.authClient = authClient;
+        this.productClient = productClient;
+        this.orderViewCache = orderViewCache;
+        this.lookupExecutor = lookupExecutor;
+        this.lookupTimeoutMs = lookupTimeoutMs;
     }
-    public List<Order> getAllOrders() {
-        return orderRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<OrderResponseDTO> getAllOrders() {
+        return toResponses(orderRepository.findAllWithProducts());
     }
-    public Optional<Order> getOrderById(Long id) {
-        return orderRepository.findById(id);
+    // Served from the view cache, a miss loads the order with its products in one statement
+    public Optional<OrderResponseDTO> getOrderById(Long id) {
+        return orderViewCache.get(id);
     }
-    @HystrixCommand(fallbackMethod = "createOrderFallback")
+    // The cached view's version when there is one, otherwise a version-only query
+    public Optional<Long> findOrderVersion(Long id) {
+        Optional<OrderResponseDTO> cached = orderViewCache.getIfPresent(id);
+        if (cached.isPresent()) {
+            return Optional.of(cached.get().getVersion());
+        }
+        return orderRepository.findVersionById(id);
+    }
+
     public Order createOrder(Order order) {
+        try {
+            priceOrder(order);
+            order.setStatus(Order.STATUS_ACCEPTED);
+            Order savedOrder = orderRepository.save(order);
+            orderViewCache.put(savedOrder);
+            return savedOrder;
+        } catch (Exception e) {
+            System.err.println("Error creating order: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    // Validates the owner and customer and sets the order's cost and type, without saving it
+    public void priceOrder(Order order) {
+        try {
+            // Owner, customer and product lookups are independent, so they run concurrently
+            // and the order waits for the slowest of them rather than for their sum
+            CompletionService<Object> lookups = new ExecutorCompletionService<>(lookupExecutor);
+            List<Future<Object>> pending = new ArrayList<>();
+            Future<Object> ownerLookup = submitLookup(lookups, pending, () -> authClient.getIdentity(order.getOwnerId()));
+            Future<Object> customerLookup = submitLookup(lookups, pending, () -> authClient.getIdentity(order.getCustomerId()));
+            Future<Object> productsLookup = submitLookup(lookups, pending, () -> productClient.getProducts(productIds(order.getOrderProducts())));
+            awaitLookups(lookups, pending);
+
+            AuthIdentity owner = (AuthIdentity) ownerLookup.get();
+            AuthIdentity customer = (AuthIdentity) customerLookup.get();
+            @SuppressWarnings("unchecked")
+            Map<Long, Product> products = (Map<Long, Product>) productsLookup.get();
+            applyPricing(order, owner, customer, products);
+        } catch (InterruptedException | ExecutionException e) {
+            // Lookups have already been joined, so these cannot happen here
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Shared by the blocking and reactive paths once the owner, customer and products have been looked up
+    static void applyPricing(Order order, AuthIdentity owner, AuthIdentity customer, Map<Long, Product> products) {
+        if (!owner.exists() || !customer.exists()) {
+            throw new RuntimeException("Owner or customer not found in auth-service");
+        }
+
         double totalCost = 0.0;
+        for (OrderProduct orderProduct : order.getOrderProducts()) {
+            double unitPrice = products.get(orderProduct.getProductId()).getPrice();
+            totalCost += unitPrice * orderProduct.getQuantity();
+            orderProduct.setUnitPrice(unitPrice);
+            orderProduct.setOrder(order); // Set the order in each orderProduct
+        }
+
+        order.setCost(totalCost);
+
+        order.setType(orderType(owner, customer));
+    }
+
+    static String orderType(AuthIdentity owner, AuthIdentity customer) {
+        if (owner.getAuthType().equals("user") && customer.getAuthType().equals("user")) {
+            return "u-u";
+        } else if (owner.getAuthType().equals("user") && customer.getAuthType().equals("company")) {
+            return "u-c";
+        } else if (owner.getAuthType().equals("company") && customer.getAuthType().equals("company")) {
+            return "c-c";
+        } else if (owner.getAuthType().equals("company") && customer.getAuthType().equals("user")) {
+            return "c-u";
+        } else {
+            throw new RuntimeException("Invalid auth types");
+        }
+    }
+
+    private Future<Object> submitLookup(CompletionService<Object> lookups, List<Future<Object>> pending, Callable<Object> lookup) {
         try {
-            // Use the non-load balanced RestTemplate for actual API calls
-            String ownerUrl = "http://localhost:8002/authService/api/auth/" + order.getOwnerId();
-            ResponseEntity<Auth> ownerResponse = restTemplate.getForEntity(ownerUrl, Auth.class);
-
-            String customerUrl = "http://localhost:8002/authService/api/auth/" + order.getCustomerId();
-            ResponseEntity<Auth> customerResponse = restTemplate.getForEntity(customerUrl, Auth.class);
-
-            if (ownerResponse.getStatusCode().is2xxSuccessful() && ownerResponse.getBody() != null
-                    && customerResponse.getStatusCode().is2xxSuccessful() && customerResponse.getBody() != null) {
-
-                for (OrderProduct orderProduct : order.getOrderProducts()) {
-                    // Use the load balanced RestTemplate for Ribbon managed calls
-                    String productUrl = "http://order-service/productService/api/products/" + orderProduct.getProductId();
-                    ResponseEntity<Product> productResponse = loadBalancedRestTemplate.getForEntity(productUrl, Product.class);
-
-                    if (productResponse.getStatusCode().is2xxSuccessful() && productResponse.getBody() != null) {
-                        double productCost = productResponse.getBody().getPrice() * orderProduct.getQuantity();
-                        totalCost += productCost;
-                        orderProduct.setOrder(order); // Set the order in each orderProduct
-                    } else {
-                        throw new RuntimeException("Product not found: " + orderProduct.getProductId());
-                    }
-                }
+            Future<Object> future = lookups.submit(lookup);
+            pending.add(future);
+            return future;
+        } catch (RejectedExecutionException e) {
+            cancelAll(pending);
+            throw new RejectedExecutionException("Order lookup pool is saturated", e);
+        }
+    }
 
-                order.setCost(totalCost);
-
-                if (ownerResponse.getBody().getAuthType().equals("user") && customerResponse.getBody().getAuthType().equals("user")) {
-                    order.setType("u-u");
-                } else if (ownerResponse.getBody().getAuthType().equals("user") && customerResponse.getBody().getAuthType().equals("company")) {
-                    order.setType("u-c");
-                } else if (ownerResponse.getBody().getAuthType().equals("company") && customerResponse.getBody().getAuthType().equals("company")) {
-                    order.setType("c-c");
-                } else if (ownerResponse.getBody().getAuthType().equals("company") && customerResponse.getBody().getAuthType().equals("user")) {
-                    order.setType("c-u");
-                } else {
-                    throw new RuntimeException("Invalid auth types");
+    private void awaitLookups(CompletionService<Object> lookups, List<Future<Object>> pending) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lookupTimeoutMs);
+        try {
+            for (int completed = 0; completed < pending.size(); completed++) {
+                Future<Object> done = lookups.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    String message = "Order lookups did not complete within " + lookupTimeoutMs + " ms";
+                    throw new RuntimeException(message, new TimeoutException(message));
                 }
-
-                return orderRepository.save(order);
-            } else {
-                throw new RuntimeException("Owner or customer not found in auth-service");
+                // Surfaces the first failure as soon as it happens
+                done.get();
             }
-        } catch (Exception e) {
-            System.err.println("Error creating order: " + e.getMessage());
-            throw e; // Ensure the exception is propagated to Hystrix
+        } catch (ExecutionException e) {
+            cancelAll(pending);
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            cancelAll(pending);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for order lookups", e);
+        } catch (RuntimeException e) {
+            cancelAll(pending);
+            throw e;
         }
     }
 
-    public Order createOrderFallback(Order order) {
-        // Fallback logic for createOrder method
-        return new Order(); // Return a default Order object or null
+    private void cancelAll(List<Future<Object>> pending) {
+        for (Future<Object> future : pending) {
+            future.cancel(true);
+        }
     }
 
-    @HystrixCommand(fallbackMethod = "updateOrderFallback")
+    static Set<Long> productIds(List<OrderProduct> orderProducts) {
+        Set<Long> productIds = new LinkedHashSet<>();
+        for (OrderProduct orderProduct : orderProducts) {
+            productIds.add(orderProduct.getProductId());
+        }
+        return productIds;
+    }
+
+    // Applies the incoming lines as a diff keyed by productId: changed quantities are updated in place, and only
+    // added or dropped products are inserted or deleted. Prices are fetched for added products only, the cost is
+    // recomputed from the unit prices stored on the lines.
     @Transactional
     public Order updateOrder(Long orderId, Order updatedOrderDetails) {
-        // Fetch the existing order from the database using the orderId
-        Optional<Order> existingOrderOptional = orderRepository.findById(orderId);
+        Optional<Order> existingOrderOptional = orderRepository.findWithProductsById(orderId);
         if (!existingOrderOptional.isPresent()) {
             throw new RuntimeException("Order not found with ID: " + orderId);
         }
         Order existingOrder = existingOrderOptional.get();
+        // The order's version is incremented at commit even when only its lines changed, which Hibernate does not do
+        // on its own since the lines are owned by OrderProduct.order. Only the order is locked, the lines have no
+        // version to increment.
+        entityManager.lock(existingOrder, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
 
-        // Initialize the orderProducts collection
-        Hibernate.initialize(existingOrder.getOrderProducts());
+        // Several incoming lines for one product are merged into one line
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (OrderProduct updatedOrderProduct : updatedOrderDetails.getOrderProducts()) {
+            quantities.merge(updatedOrderProduct.getProductId(), updatedOrderProduct.getQuantity(), Integer::sum);
+        }
 
-        // Remove existing OrderProduct entries
-        existingOrder.getOrderProducts().clear();
+        // Drops lines of products that are no longer ordered, orphan removal deletes their rows
+        Map<Long, OrderProduct> kept = new HashMap<>();
+        Iterator<OrderProduct> lines = existingOrder.getOrderProducts().iterator();
+        while (lines.hasNext()) {
+            OrderProduct line = lines.next();
+            if (!quantities.containsKey(line.getProductId()) || kept.putIfAbsent(line.getProductId(), line) != null) {
+                lines.remove();
+            }
+        }
 
-        double totalCost = 0.0;
+        // Lines priced before unit prices were stored are priced again along with the new products
+        Set<Long> unpriced = new LinkedHashSet<>();
+        for (Long productId : quantities.keySet()) {
+            OrderProduct line = kept.get(productId);
+            if (line == null || line.getUnitPrice() == null) {
+                unpriced.add(productId);
+            }
+        }
+        Map<Long, Product> products = unpriced.isEmpty() ? Collections.emptyMap() : productClient.getProducts(unpriced);
 
-        for (OrderProduct updatedOrderProduct : updatedOrderDetails.getOrderProducts()) {
-            String productUrl = "http://order-service/productService/api/products/" + updatedOrderProduct.getProductId();
-            ResponseEntity<Product> productResponse = loadBalancedRestTemplate.getForEntity(productUrl, Product.class);
-
-            if (productResponse.getStatusCode().is2xxSuccessful() && productResponse.getBody() != null) {
-                double productCost = productResponse.getBody().getPrice() * updatedOrderProduct.getQuantity();
-                totalCost += productCost;
-                updatedOrderProduct.setOrder(existingOrder); // Set the order in each orderProduct
-                existingOrder.getOrderProducts().add(updatedOrderProduct); // Add updated OrderProduct to the order
-            } else {
-                throw new RuntimeException("Product not found: " + updatedOrderProduct.getProductId());
+        double totalCost = 0.0;
+        for (Map.Entry<Long, Integer> quantity : quantities.entrySet()) {
+            OrderProduct line = kept.get(quantity.getKey());
+            if (line == null) {
+                line = new OrderProduct(existingOrder, quantity.getKey(), quantity.getValue());
+                existingOrder.getOrderProducts().add(line);
+            } else if (line.getQuantity() != quantity.getValue()) {
+                line.setQuantity(quantity.getValue());
             }
+            if (unpriced.contains(quantity.getKey())) {
+                line.setUnitPrice(products.get(quantity.getKey()).getPrice());
+            }
+            totalCost += line.getUnitPrice() * line.getQuantity();
         }
 
         existingOrder.setCost(totalCost);
@@ -132,27 +262,94 @@ public class OrderService {
         existingOrder.setType(updatedOrderDetails.getType());
         existingOrder.setCreatedAt(updatedOrderDetails.getCreatedAt());
 
-        // Save the updated order back to the database
+        orderViewCache.invalidate(orderId);
+        // Dirty checking flushes only the lines that changed
         return orderRepository.save(existingOrder);
     }
 
 
-
-    public Order updateOrderFallback(Long orderId, Order updatedOrderDetails) {
-        // Fallback logic for updateOrder method
-        return new Order(); // Return a default Order object or null
-    }
-
-
     public boolean deleteOrder(Long id) {
         if (!orderRepository.existsById(id)) {
             return false;
         }
         orderRepository.deleteById(id);
+        orderViewCache.invalidate(id);
         return true;
     }
 
-    public List<Order> getOrdersByType(String type) {
-        return orderRepository.findByType("u-c");
+    @Transactional(readOnly = true)
+    public List<OrderResponseDTO> getOrdersByType(String type) {
+        return toResponses(orderRepository.findWithProductsByType(type));
+    }
+
+    @Transactional(readOnly = true)
+    public OrderPageResponseDTO getCustomerHistory(Long customerId, String type, String cursor, int size) {
+        Pageable page = PageRequest.of(0, pageSize(size));
+        List<Long> ids;
+        if (cursor == null) {
+            ids = orderRepository.findCustomerHistoryIds(customerId, type, page);
+        } else {
+            ids = orderRepository.findCustomerHistoryIdsAfter(customerId, type, cursorCreatedAt(cursor), cursorId(cursor), page);
+        }
+        return toPage(ids, page.getPageSize());
+    }
+
+    @Transactional(readOnly = true)
+    public OrderPageResponseDTO getOwnerHistory(Long ownerId, String type, String cursor, int size) {
+        Pageable page = PageRequest.of(0, pageSize(size));
+        List<Long> ids;
+        if (cursor == null) {
+            ids = orderRepository.findOwnerHistoryIds(ownerId, type, page);
+        } else {
+            ids = orderRepository.findOwnerHistoryIdsAfter(ownerId, type, cursorCreatedAt(cursor), cursorId(cursor), page);
+        }
+        return toPage(ids, page.getPageSize());
+    }
+
+    private OrderPageResponseDTO toPage(List<Long> ids, int size) {
+        if (ids.isEmpty()) {
+            return new OrderPageResponseDTO(Collections.emptyList(), null);
+        }
+        // Second statement loads the page's orders with their products, then the keyset order is restored
+        Map<Long, Order> ordersById = new HashMap<>();
+        for (Order order : orderRepository.findWithProductsByIdIn(ids)) {
+            ordersById.put(order.getId(), order);
+        }
+        List<OrderResponseDTO> orders = new ArrayList<>();
+        for (Long id : ids) {
+            orders.add(OrderResponseDTO.from(ordersById.get(id)));
+        }
+
+        String nextCursor = null;
+        if (ids.size() == size) {
+            OrderResponseDTO last = orders.get(orders.size() - 1);
+            nextCursor = last.getCreatedAt().getTime() + "_" + last.getId();
+        }
+        return new OrderPageResponseDTO(orders, nextCursor);
+    }
+
+    private static int pageSize(int size) {
+        return Math.max(1, Math.min(size, 100));
+    }
+
+    // Cursors have the form <createdAt epoch millis>_<order id>
+    private static Date cursorCreatedAt(String cursor) {
+        try {
+            return new Date(Long.parseLong(cursor.substring(0, cursor.indexOf('_'))));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    private static Long cursorId(String cursor) {
+        try {
+            return Long.parseLong(cursor.substring(cursor.indexOf('_') + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    private List<OrderResponseDTO> toResponses(List<Order> orders) {
+        return orders.stream().map(OrderResponseDTO::from).collect(Collectors.toList());
     }
 }
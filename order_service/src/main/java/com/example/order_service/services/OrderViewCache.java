@@ -0,0 +1,71 @@
+package com.example.order_service.services;
+
+import com.example.order_service.dto.OrderResponseDTO;
+import com.example.order_service.entities.Order;
+import com.example.order_service.repositories.OrderRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+// Fully built views of single orders for GET /api/orders/{id}. Caffeine evicts by size with W-TinyLFU, which keeps
+// the orders that are polled often when a burst of one-off reads passes through, and concurrent misses for one id
+// share a single load. Ids that do not exist are not cached, so a new order needs no invalidation. Writes on this
+// instance invalidate their order, the TTL bounds how long a write made through another instance stays unseen.
+@Component
+public class OrderViewCache {
+    private final LoadingCache<Long, OrderResponseDTO> cache;
+    @Autowired
+    public OrderViewCache(OrderRepository orderRepository,
+                          @Value("${order.view-cache.max-size:10000}") long maxSize,
+                          @Value("${order.view-cache.ttl-seconds:30}") long ttlSeconds,
+                          MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build(id -> orderRepository.findWithProductsById(id)
+                        // Like the list reads, an order is only shown once accepted
+                        .filter(order -> order.getStatus() == null || Order.STATUS_ACCEPTED.equals(order.getStatus()))
+                        .map(OrderResponseDTO::from)
+                        .orElse(null));
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "order.view-cache");
+        Gauge.builder("order.view-cache.hit.ratio", cache, c -> c.stats().hitRate()).register(meterRegistry);
+    }
+
+    public Optional<OrderResponseDTO> get(Long id) {
+        return Optional.ofNullable(cache.get(id));
+    }
+
+    // Never loads
+    public Optional<OrderResponseDTO> getIfPresent(Long id) {
+        return Optional.ofNullable(cache.getIfPresent(id));
+    }
+
+    // The order's products must be loaded
+    public void put(Order order) {
+        cache.put(order.getId(), OrderResponseDTO.from(order));
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // A read that ran before the commit may have cached the old state again
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(id);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.order_service.services;
+
+import com.example.order_service.entities.Product;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+// Products are served from the cache for the TTL. After that they are kept as stale copies for the revalidation
+// window, so the next lookup can send their ETags to product_service and skip the transfer of unchanged products.
+@Component
+public class ProductCache {
+    private final Cache<Long, Entry> cache;
+    private final long ttlNanos;
+    @Autowired
+    public ProductCache(@Value("${order.product-cache.max-size:10000}") long maxSize,
+                        @Value("${order.product-cache.ttl-seconds:60}") long ttlSeconds,
+                        @Value("${order.product-cache.revalidate-seconds:600}") long revalidateSeconds,
+                        MeterRegistry meterRegistry) {
+        // The TTL is the upper bound on how stale a cached price can get if an invalidation is lost
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(Math.max(ttlSeconds, revalidateSeconds)))
+                .recordStats()
+                .build();
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "order.product-cache");
+    }
+
+    // The loader gets the ids that are not cached or stale, in a single call, along with the stale copies it can
+    // revalidate. It returns the products that exist.
+    public Map<Long, Product> getAll(Collection<Long> ids,
+                                     BiFunction<Set<Long>, Map<Long, Product>, Map<Long, Product>> loader) {
+        Map<Long, Product> products = getAllPresent(ids);
+        Set<Long> missingIds = new LinkedHashSet<>(ids);
+        missingIds.removeAll(products.keySet());
+        if (!missingIds.isEmpty()) {
+            Map<Long, Product> loaded = loader.apply(missingIds, getAllStale(missingIds));
+            putAll(loaded);
+            products.putAll(loaded);
+            // Stale copies of products that no longer exist
+            missingIds.removeAll(loaded.keySet());
+            cache.invalidateAll(missingIds);
+
+        }
+        return products;
+    }
+
+    // Products within the TTL
+    public Map<Long, Product> getAllPresent(Collection<Long> ids) {
+        return select(ids, true);
+    }
+
+    // Products past the TTL that are still kept for revalidation
+    public Map<Long, Product> getAllStale(Collection<Long> ids) {
+        return select(ids, false);
+    }
+
+    public void putAll(Map<Long, Product> products) {
+        long now = System.nanoTime();
+        for (Map.Entry<Long, Product> product : products.entrySet()) {
+            cache.put(product.getKey(), new Entry(product.getValue(), now));
+        }
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private Map<Long, Product> select(Collection<Long> ids, boolean fresh) {
+        long now = System.nanoTime();
+        Map<Long, Product> products = new HashMap<>();
+        for (Map.Entry<Long, Entry> entry : cache.getAllPresent(ids).entrySet()) {
+            if ((now - entry.getValue().loadedAt < ttlNanos) == fresh) {
+                products.put(entry.getKey(), entry.getValue().product);
+            }
+        }
+        return products;
+    }
+
+    private static class Entry {
+        private final Product product;
+        private final long loadedAt;
+
+        Entry(Product product, long loadedAt) {
+            this.product = product;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
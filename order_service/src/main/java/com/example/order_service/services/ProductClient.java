@@ -0,0 +1,143 @@
+package com.example.order_service.services;
+
+import com.example.order_service.dto.ProductBatchResponseDTO;
+import com.example.order_service.entities.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+public class ProductClient {
+    private static final String PRODUCTS_URL = "http://order-service/productService/api/products/batch";
+
+    private final RestTemplate loadBalancedRestTemplate; // For load balanced calls
+    private final WebClient loadBalancedWebClient; // For non-blocking load balanced calls
+    private final ProductCache productCache;
+    private final ConcurrencyLimiters limiters;
+    private final HedgedProductLookup hedgedProductLookup;
+    @Autowired
+    public ProductClient(@Qualifier("loadBalancedRestTemplate") RestTemplate loadBalancedRestTemplate,
+                         @Qualifier("loadBalancedWebClient") WebClient loadBalancedWebClient, ProductCache productCache,
+                         ConcurrencyLimiters limiters, HedgedProductLookup hedgedProductLookup) {
+        this.loadBalancedRestTemplate = loadBalancedRestTemplate;
+        this.loadBalancedWebClient = loadBalancedWebClient;
+        this.productCache = productCache;
+        this.limiters = limiters;
+        this.hedgedProductLookup = hedgedProductLookup;
+    }
+
+    public Map<Long, Product> getProducts(Collection<Long> ids) {
+        return requireAll(ids, findProducts(ids));
+    }
+
+    public Mono<Map<Long, Product>> getProductsReactive(Collection<Long> ids) {
+        Map<Long, Product> cached = productCache.getAllPresent(ids);
+        Set<Long> missingIds = new LinkedHashSet<>(ids);
+        missingIds.removeAll(cached.keySet());
+        if (missingIds.isEmpty()) {
+            return Mono.just(cached);
+        }
+        Map<Long, Product> stale = productCache.getAllStale(missingIds);
+        List<String> etags = etags(stale);
+        Mono<ProductBatchResponseDTO> lookup;
+        if (hedgedProductLookup.isEnabled()) {
+            lookup = limiters.get("product-service").callReactive(() -> hedgedProductLookup.fetch(new ArrayList<>(missingIds), etags));
+        } else {
+            lookup = limiters.get("product-service").callReactive(() -> loadBalancedWebClient.post().uri(PRODUCTS_URL)
+                    .headers(headers -> {
+                        if (!etags.isEmpty()) {
+                            headers.setIfNoneMatch(etags);
+                        }
+                    })
+                    .bodyValue(new ArrayList<>(missingIds))
+                    .retrieve()
+                    .bodyToMono(ProductBatchResponseDTO.class));
+        }
+        return lookup.map(response -> {
+            Map<Long, Product> fetched = toMap(response, stale);
+            productCache.putAll(fetched);
+            Map<Long, Product> products = new HashMap<>(cached);
+            products.putAll(fetched);
+            return requireAll(ids, products);
+        });
+    }
+
+    private static Map<Long, Product> requireAll(Collection<Long> ids, Map<Long, Product> products) {
+        Set<Long> missingIds = new LinkedHashSet<>(ids);
+        missingIds.removeAll(products.keySet());
+        if (!missingIds.isEmpty()) {
+            throw new RuntimeException("Products not found: " + missingIds);
+        }
+        return products;
+    }
+
+    // Returns the products that exist, unknown ids are simply absent from the result
+    public Map<Long, Product> findProducts(Collection<Long> ids) {
+        // Cached products are served locally, the rest are fetched from product_service in one batch
+        return productCache.getAll(ids, this::fetchProducts);
+    }
+
+    // Stale cached copies go out as If-None-Match, product_service only sends back the products that changed
+    private Map<Long, Product> fetchProducts(Set<Long> productIds, Map<Long, Product> stale) {
+        List<String> etags = etags(stale);
+        if (hedgedProductLookup.isEnabled()) {
+            ProductBatchResponseDTO response = limiters.get("product-service").call(() ->
+                    hedgedProductLookup.fetch(new ArrayList<>(productIds), etags).block());
+            if (response == null) {
+                throw new RuntimeException("Products lookup returned no body");
+            }
+            return toMap(response, stale);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        if (!etags.isEmpty()) {
+            headers.setIfNoneMatch(etags);
+        }
+
+        ResponseEntity<ProductBatchResponseDTO> productsResponse = limiters.get("product-service").call(() ->
+                loadBalancedRestTemplate.exchange(PRODUCTS_URL, HttpMethod.POST,
+                        new HttpEntity<>(new ArrayList<>(productIds), headers), ProductBatchResponseDTO.class));
+        if (!productsResponse.getStatusCode().is2xxSuccessful() || productsResponse.getBody() == null) {
+            throw new RuntimeException("Products lookup failed with status: " + productsResponse.getStatusCode());
+        }
+        return toMap(productsResponse.getBody(), stale);
+    }
+
+    private static List<String> etags(Map<Long, Product> products) {
+        List<String> etags = new ArrayList<>();
+        for (Product product : products.values()) {
+            etags.add(ETags.of(product.getId(), product.getVersion()));
+        }
+        return etags;
+    }
+
+    private static Map<Long, Product> toMap(ProductBatchResponseDTO response, Map<Long, Product> stale) {
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : response.getProducts()) {
+            products.put(product.getId(), product);
+        }
+        for (Long id : response.getNotModifiedIds()) {
+            Product product = stale.get(id);
+            if (product != null) {
+                products.put(id, product);
+            }
+        }
+        return products;
+    }
+
+}
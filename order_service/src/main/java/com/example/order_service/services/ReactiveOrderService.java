@@ -0,0 +1,54 @@
+package com.example.order_service.services;
+
+import com.example.order_service.entities.Order;
+import com.example.order_service.repositories.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+// Non-blocking order creation, used when order.client.mode=reactive. The owner, customer and product lookups
+// are composed without holding a thread while they wait; only the final save takes a thread from the JDBC scheduler.
+@Service
+public class ReactiveOrderService {
+    private final OrderRepository orderRepository;
+    private final AuthClient authClient;
+    private final ProductClient productClient;
+    private final Scheduler jdbcScheduler;
+    private final long lookupTimeoutMs;
+    @Autowired
+    public ReactiveOrderService(OrderRepository orderRepository, AuthClient authClient, ProductClient productClient,
+                                @Qualifier("orderJdbcScheduler") Scheduler jdbcScheduler,
+                                @Value("${order.lookup.timeout-ms:800}") long lookupTimeoutMs) {
+        this.orderRepository = orderRepository;
+        this.authClient = authClient;
+        this.productClient = productClient;
+        this.jdbcScheduler = jdbcScheduler;
+        this.lookupTimeoutMs = lookupTimeoutMs;
+    }
+
+    public Mono<Order> createOrder(Order order) {
+        if (order.getOrderProducts() == null || order.getOrderProducts().isEmpty()) {
+            return Mono.error(new RuntimeException("Order has no products"));
+        }
+        // zip subscribes to the three lookups at once and cancels the others as soon as one fails
+        return Mono.zip(authClient.getIdentityReactive(order.getOwnerId()),
+                        authClient.getIdentityReactive(order.getCustomerId()),
+                        productClient.getProductsReactive(OrderService.productIds(order.getOrderProducts())))
+                .timeout(Duration.ofMillis(lookupTimeoutMs))
+                .onErrorMap(TimeoutException.class,
+                        e -> new RuntimeException("Order lookups did not complete within " + lookupTimeoutMs + " ms", e))
+                .map(lookups -> {
+                    OrderService.applyPricing(order, lookups.getT1(), lookups.getT2(), lookups.getT3());
+                    order.setStatus(Order.STATUS_ACCEPTED);
+                    return order;
+                })
+                .publishOn(jdbcScheduler)
+                .map(orderRepository::save);
+    }
+}
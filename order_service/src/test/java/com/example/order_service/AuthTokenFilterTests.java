@@ -0,0 +1,158 @@
+package com.example.order_service;
+
+import com.example.order_service.dto.AuthIdentity;
+import com.example.order_service.entities.Auth;
+import com.example.order_service.services.AuthClient;
+import com.example.order_service.services.ConcurrencyLimiters;
+import com.example.order_service.services.IdentityCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.client.RestTemplate;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class AuthTokenFilterTests {
+
+    private static final String SECRET = "test-secret-0123456789abcdef-0123456789";
+    // What auth_service's AuthTokenIssuer issues with SECRET for user 42 (company) at 2100-01-01T00:00:00Z, its
+    // AuthTokenIssuerTests check the same token
+    private static final String ISSUED = "eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9"
+            + ".eyJzdWIiOiI0MiIsImF1dGhUeXBlIjoiY29tcGFueSIsImlhdCI6NDEwMjQ0NDgwMCwiZXhwIjo0MTAyNDQ1NzAwfQ"
+            + ".RX07RahYvpblAKqriREELmJ6fZ1KmqL0Mha7M3OTi4o";
+
+    private final AuthTokenFilter filter = new AuthTokenFilter(SECRET);
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void validTokenAuthenticatesTheCaller() throws Exception {
+        AtomicReference<Authentication> seen = new AtomicReference<>();
+        MockHttpServletResponse response = filter(token(SECRET, 42, "company", 60), seen);
+
+        assertEquals(200, response.getStatus());
+        AuthTokenFilter.TokenAuthentication authentication = (AuthTokenFilter.TokenAuthentication) seen.get();
+        assertEquals(42L, authentication.getPrincipal());
+        assertEquals("company", authentication.getAuthType());
+        assertTrue(authentication.isAuthenticated());
+    }
+
+    @Test
+    void tokensIssuedByAuthServiceAreAccepted() {
+        AuthTokenFilter.TokenAuthentication authentication = filter.verify(ISSUED);
+
+        assertEquals(42L, authentication.getPrincipal());
+        assertEquals("company", authentication.getAuthType());
+    }
+
+    @Test
+    void onlyServiceTokensCarryTheServiceAuthority() {
+        AuthTokenFilter.TokenAuthentication service = filter.verify(token(SECRET, 0, AuthTokenFilter.SERVICE, 60));
+
+        assertEquals(0L, service.getPrincipal());
+        assertEquals(AuthTokenFilter.SERVICE, service.getAuthType());
+        // A user who registered with the service authType, or a service token claiming a user, is refused
+        assertNull(filter.verify(token(SECRET, 42, AuthTokenFilter.SERVICE, 60)));
+        assertNull(filter.verify(token(SECRET, 0, "company", 60)));
+    }
+
+    @Test
+    void forgedExpiredOrMalformedTokensAreRejected() throws Exception {
+        String valid = token(SECRET, 42, "user", 60);
+        String forged = token("another-secret-0123456789abcdef-0123", 42, "user", 60);
+        String tampered = valid.substring(0, valid.indexOf('.') + 1) + token(SECRET, 7, "user", 60).split("\\.")[1]
+                + valid.substring(valid.lastIndexOf('.'));
+        for (String token : new String[]{forged, tampered, token(SECRET, 42, "user", -1), "not-a-token", valid + "x"}) {
+            AtomicReference<Authentication> seen = new AtomicReference<>();
+            MockHttpServletResponse response = filter(token, seen);
+
+            assertEquals(401, response.getStatus(), token);
+            assertTrue(response.getHeader(HttpHeaders.WWW_AUTHENTICATE).contains("invalid_token"));
+            assertNull(seen.get());
+        }
+    }
+
+    @Test
+    void requestsWithoutTokenPassThroughUnauthenticated() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/orders/1");
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertEquals(request, chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void shortSecretsAreRefused() {
+        assertThrows(IllegalArgumentException.class, () -> new AuthTokenFilter("too-short"));
+    }
+
+    @Test
+    void callersOwnIdentityNeedsNoRemoteLookup() {
+        RestTemplate restTemplate = Mockito.mock(RestTemplate.class);
+        AuthClient authClient = new AuthClient(restTemplate, null, new IdentityCache(100, 300, 10, new SimpleMeterRegistry()),
+                new ConcurrencyLimiters(new SimpleMeterRegistry(), 20, 4, 200));
+        SecurityContextHolder.getContext().setAuthentication(filter.verify(token(SECRET, 42, "company", 60)));
+
+        AuthIdentity caller = authClient.getIdentity(42L);
+
+        assertTrue(caller.exists());
+        assertEquals("company", caller.getAuthType());
+        verifyNoInteractions(restTemplate);
+
+        // Anyone else is still looked up
+        Auth other = new Auth();
+        other.setAuthType("user");
+        when(restTemplate.getForEntity(anyString(), eq(Auth.class))).thenReturn(ResponseEntity.ok(other));
+        assertEquals("user", authClient.getIdentity(7L).getAuthType());
+        verify(restTemplate).getForEntity(anyString(), eq(Auth.class));
+    }
+
+    private MockHttpServletResponse filter(String token, AtomicReference<Authentication> seen) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/orders");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> seen.set(SecurityContextHolder.getContext().getAuthentication()));
+        return response;
+    }
+
+    // Signed the way auth-service signs them
+    private static String token(String secret, long userId, String authType, long ttlSeconds) {
+        long now = System.currentTimeMillis() / 1000;
+        String claims = "{\"sub\":\"" + userId + "\",\"authType\":\"" + authType + "\",\"iat\":" + now + ",\"exp\":" + (now + ttlSeconds) + "}";
+        String content = AuthTokenFilter.HEADER + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(claims.getBytes(StandardCharsets.UTF_8));
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return content + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(mac.doFinal(content.getBytes(StandardCharsets.US_ASCII)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
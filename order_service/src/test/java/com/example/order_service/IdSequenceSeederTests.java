@@ -0,0 +1,68 @@
+package com.example.order_service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// H2 has native sequences, so the one-row tables MySQL gets are created by hand
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdSequenceSeederTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("create table legacy_rows (id bigint primary key)");
+        jdbcTemplate.execute("create table legacy_rows_seq (next_val bigint)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("drop table legacy_rows");
+        jdbcTemplate.execute("drop table legacy_rows_seq");
+    }
+
+    @Test
+    void sequenceIsMovedPastExistingIdsOnce() {
+        jdbcTemplate.update("insert into legacy_rows (id) values (1), (7), (120)");
+        jdbcTemplate.update("insert into legacy_rows_seq (next_val) values (1)");
+
+        assertTrue(IdSequenceSeeder.seed(jdbcTemplate, "legacy_rows_seq", "legacy_rows"));
+        assertEquals(121L, nextVal());
+        assertFalse(IdSequenceSeeder.seed(jdbcTemplate, "legacy_rows_seq", "legacy_rows"));
+        assertEquals(121L, nextVal());
+    }
+
+    @Test
+    void sequencesAheadOfTheTableAreLeftAlone() {
+        jdbcTemplate.update("insert into legacy_rows (id) values (1), (7)");
+        jdbcTemplate.update("insert into legacy_rows_seq (next_val) values (501)");
+
+        assertFalse(IdSequenceSeeder.seed(jdbcTemplate, "legacy_rows_seq", "legacy_rows"));
+        assertEquals(501L, nextVal());
+    }
+
+    @Test
+    void emptyTablesAndMissingSequenceTablesNeedNothing() {
+        jdbcTemplate.update("insert into legacy_rows_seq (next_val) values (1)");
+
+        assertFalse(IdSequenceSeeder.seed(jdbcTemplate, "legacy_rows_seq", "legacy_rows"));
+        assertEquals(1L, nextVal());
+        assertFalse(IdSequenceSeeder.seed(jdbcTemplate, "no_such_seq", "legacy_rows"));
+    }
+
+    private long nextVal() {
+        return jdbcTemplate.queryForObject("select next_val from legacy_rows_seq", Long.class);
+    }
+}
@@ -3,7 +3,8 @@ package com.example.order_service;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// The services refuse to start without a token secret
+@SpringBootTest(properties = "auth.token.secret=test-secret-0123456789abcdef-0123456789")
 class OrderServiceApplicationTests {
 
     @Test
@@ -0,0 +1,177 @@
+package com.example.order_service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Benchmarks the pooled client against the previous new RestTemplate() on a local keep-alive stub,
+// counting how many TCP connections each one has to set up for the same load.
+class OutboundHttpConfigTests {
+
+    private static final int THREADS = 32;
+    private static final int REQUESTS_PER_THREAD = 200;
+    private static final String PRODUCT = "{\"id\":1,\"price\":2.5}";
+
+    private ServerSocket stub;
+    private ExecutorService stubExecutor;
+    private final AtomicInteger connections = new AtomicInteger();
+    private String baseUrl;
+
+    @BeforeAll
+    static void quietHttpClientLogging() {
+        // Outside a Spring context logback defaults to DEBUG, and wire logging would dominate the timings
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = new ServerSocket(0, 512, InetAddress.getLoopbackAddress());
+        stubExecutor = Executors.newCachedThreadPool();
+        stubExecutor.execute(() -> {
+            while (!stub.isClosed()) {
+                try {
+                    Socket socket = stub.accept();
+                    connections.incrementAndGet();
+                    stubExecutor.execute(() -> serve(socket));
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        baseUrl = "http://127.0.0.1:" + stub.getLocalPort();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        stub.close();
+        stubExecutor.shutdownNow();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void pooledClientReusesConnectionsUnderConcurrency() throws Exception {
+        long simpleMs = run(new RestTemplate());
+        int simpleConnections = connections.getAndSet(0);
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        try (CloseableHttpClient httpClient = newHttpClient(meterRegistry)) {
+            long pooledMs = run(newRestTemplate(httpClient, 1024 * 1024));
+            int pooledConnections = connections.get();
+
+            System.out.println("Outbound HTTP benchmark, " + THREADS * REQUESTS_PER_THREAD + " requests on " + THREADS
+                    + " threads: new RestTemplate() " + simpleMs + " ms / " + simpleConnections + " connections, pooled "
+                    + pooledMs + " ms / " + pooledConnections + " connections");
+
+            // Never more connections than concurrent callers, each set up once and then reused
+            assertTrue(pooledConnections <= THREADS, pooledConnections + " connections opened");
+            assertTrue(pooledConnections < simpleConnections,
+                    "pooled " + pooledConnections + " vs simple " + simpleConnections + " connections");
+            String destination = "127.0.0.1:" + stub.getLocalPort();
+            assertEquals(THREADS * REQUESTS_PER_THREAD,
+                    meterRegistry.get("outbound.http.pool.wait").tag("destination", destination).timer().count());
+            assertNotNull(meterRegistry.get("outbound.http.pool.connections").tag("destination", destination)
+                    .tag("state", "available").gauge());
+        }
+    }
+
+    @Test
+    void responsesOverTheSizeLimitAreRejected() throws IOException {
+        try (CloseableHttpClient httpClient = newHttpClient(new SimpleMeterRegistry())) {
+            RestTemplate restTemplate = newRestTemplate(httpClient, 1024);
+
+            assertThrows(ResourceAccessException.class, () -> restTemplate.getForObject(baseUrl + "/large", String.class));
+            assertEquals(PRODUCT, restTemplate.getForObject(baseUrl + "/product", String.class));
+        }
+    }
+
+    private long run(RestTemplate restTemplate) throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(callers.submit(() -> {
+                    for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+                        restTemplate.getForObject(baseUrl + "/product", String.class);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return (System.nanoTime() - start) / 1_000_000;
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    private static CloseableHttpClient newHttpClient(MeterRegistry meterRegistry) {
+        return new OutboundHttpConfig().outboundHttpClient(meterRegistry, 200, 50, 1000, 3000, 500, 30);
+    }
+
+    private static RestTemplate newRestTemplate(CloseableHttpClient httpClient, long maxResponseBytes) {
+        return new RestTemplateBuilder(new OutboundHttpConfig().outboundRestTemplateCustomizer(httpClient, maxResponseBytes)).build();
+    }
+
+    // Minimal HTTP/1.1 keep-alive server: GET /large returns 40 KB, anything else a small product
+    private static void serve(Socket socket) {
+        try (Socket s = socket) {
+            s.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+            OutputStream out = s.getOutputStream();
+            String requestLine;
+            while ((requestLine = in.readLine()) != null) {
+                String line;
+                while ((line = in.readLine()) != null && !line.isEmpty()) {
+                    // Headers are not needed
+                }
+                StringBuilder body = new StringBuilder();
+                if (requestLine.startsWith("GET /large")) {
+                    for (int i = 0; i < 4096; i++) {
+                        body.append("0123456789");
+                    }
+                } else {
+                    body.append(PRODUCT);
+                }
+                byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+                String headers = "HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: " + bytes.length + "\r\n\r\n";
+                out.write(headers.getBytes(StandardCharsets.US_ASCII));
+                out.write(bytes);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Client went away
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.order_service;
+
+import com.example.order_service.dto.OrderProductResponseDTO;
+import com.example.order_service.dto.OrderResponseDTO;
+import com.example.order_service.dto.ProductBatchResponseDTO;
+import com.example.order_service.entities.Auth;
+import com.example.order_service.entities.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+// Payload size of JSON against Smile for what the services send each other: product batches (order -> product),
+// orders and users (order/product -> auth). Serialization CPU is measured by the benchmark task.
+class SmileSerializationTests {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    private static final int ITERATIONS = 2000;
+    private static final String[] WORDS = {"stainless", "steel", "kettle", "with", "auto", "shut-off", "and", "boil-dry",
+            "protection", "the", "1.7", "litre", "capacity", "is", "enough", "for", "a", "family", "cordless", "base",
+            "rotates", "360", "degrees", "wide", "lid", "makes", "cleaning", "easy", "limescale", "filter", "included"};
+
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper smile = Jackson2ObjectMapperBuilder.smile().build();
+
+    @Test
+    void smileIsSmallerAndRoundTripsProductBatches() throws IOException {
+        ProductBatchResponseDTO batch = productBatch(new Random(42), 100);
+
+        ProductBatchResponseDTO decoded = smile.readValue(smile.writeValueAsBytes(batch), ProductBatchResponseDTO.class);
+        assertEquals(json.writeValueAsString(batch), json.writeValueAsString(decoded));
+        // Descriptions are most of a product, Smile saves on the field names and numbers around them
+        assertSmaller(batch, 1.0);
+    }
+
+    @Test
+    void smileIsSmallerForOrdersAndUsers() throws IOException {
+        assertSmaller(orders(new Random(7)), 0.85);
+        assertSmaller(user(), 1.0);
+    }
+
+    @Test
+    void internalRestTemplatesAskForAndSendSmile() throws IOException {
+        try (CloseableHttpClient httpClient = new OutboundHttpConfig().outboundHttpClient(new SimpleMeterRegistry(),
+                200, 50, 1000, 3000, 500, 30)) {
+            RestTemplate restTemplate = new RestTemplateBuilder(
+                    new OutboundHttpConfig().outboundRestTemplateCustomizer(httpClient, 1024 * 1024)).build();
+            MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+            ProductBatchResponseDTO batch = productBatch(new Random(1), 3);
+            server.expect(request -> assertTrue(request.getHeaders().getAccept().get(0).isCompatibleWith(SMILE),
+                            request.getHeaders().getAccept().toString()))
+                    .andExpect(header(HttpHeaders.CONTENT_TYPE, SMILE.toString()))
+                    .andExpect(content().bytes(smile.writeValueAsBytes(Arrays.asList(1L, 2L, 3L))))
+                    .andRespond(withSuccess(smile.writeValueAsBytes(batch), SMILE));
+
+            ProductBatchResponseDTO response = restTemplate.exchange("http://product-service/api/products/batch",
+                    HttpMethod.POST, new HttpEntity<>(Arrays.asList(1L, 2L, 3L)), ProductBatchResponseDTO.class).getBody();
+
+            server.verify();
+            assertEquals(json.writeValueAsString(batch), json.writeValueAsString(response));
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void serializationSpeed() throws IOException {
+        measure("product batch of 100", productBatch(new Random(42), 100), ProductBatchResponseDTO.class);
+        measure("page of 50 orders", orders(new Random(7)), null);
+        measure("user", user(), Auth.class);
+    }
+
+    private void assertSmaller(Object payload, double ratio) throws IOException {
+        int jsonBytes = json.writeValueAsBytes(payload).length;
+        int smileBytes = smile.writeValueAsBytes(payload).length;
+        assertTrue(smileBytes < jsonBytes * ratio, smileBytes + " vs " + jsonBytes + " bytes");
+    }
+
+    // Encodes and decodes the payload ITERATIONS times in each format, decoding into the type or a tree without one.
+    // The first round warms up.
+    private void measure(String name, Object payload, Class<?> type) throws IOException {
+        int jsonBytes = json.writeValueAsBytes(payload).length;
+        int smileBytes = smile.writeValueAsBytes(payload).length;
+        for (int round = 0; round < 2; round++) {
+            long[] jsonNanos = time(json, payload, type);
+            long[] smileNanos = time(smile, payload, type);
+            if (round == 1) {
+                System.out.println("Serialization of a " + name + ": JSON " + jsonBytes + " bytes, write "
+                        + jsonNanos[0] / ITERATIONS / 1000 + " us, read " + jsonNanos[1] / ITERATIONS / 1000
+                        + " us; Smile " + smileBytes + " bytes, write " + smileNanos[0] / ITERATIONS / 1000
+                        + " us, read " + smileNanos[1] / ITERATIONS / 1000 + " us");
+            }
+        }
+    }
+
+    private static long[] time(ObjectMapper mapper, Object payload, Class<?> type) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(payload);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mapper.writeValueAsBytes(payload);
+        }
+        long writeNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            if (type == null) {
+                mapper.readTree(bytes);
+            } else {
+                mapper.readValue(bytes, type);
+            }
+        }
+        return new long[]{writeNanos, System.nanoTime() - start};
+    }
+
+    private static List<OrderResponseDTO> orders(Random random) {
+        List<OrderResponseDTO> orders = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            List<OrderProductResponseDTO> lines = new ArrayList<>();
+            int lineCount = 1 + random.nextInt(8);
+            for (long line = 1; line <= lineCount; line++) {
+                lines.add(new OrderProductResponseDTO(id * 10 + line, 1L + random.nextInt(100_000), 1 + random.nextInt(5),
+                        Math.round(random.nextDouble() * 50_000) / 100.0));
+            }
+            orders.add(new OrderResponseDTO(id, 1L + random.nextInt(1000), 1L + random.nextInt(1000), "ONLINE",
+                    Math.round(random.nextDouble() * 100_000) / 100.0, new Date(1_700_000_000_000L + id * 60_000), 3, lines));
+        }
+        return orders;
+    }
+
+    private static Auth user() {
+        Auth auth = new Auth();
+        auth.setId(42L);
+        auth.setUsername("jane.doe@example.com");
+        auth.setAuthType("OWNER");
+        auth.setCreatedAt(new Date(1_700_000_000_000L));
+        return auth;
+    }
+
+    private static ProductBatchResponseDTO productBatch(Random random, int size) {
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= size; id++) {
+            StringBuilder description = new StringBuilder();
+            for (int word = 0; word < 30 + random.nextInt(30); word++) {
+                description.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            Product product = new Product("Kettle model " + (1000 + random.nextInt(9000)), description.toString().trim(),
+                    Math.round(random.nextDouble() * 50_000) / 100.0, 1L + random.nextInt(1000));
+            product.setId(id);
+            product.setCreatedAt(new Date(1_700_000_000_000L + id * 60_000));
+            product.setVersion(random.nextInt(5));
+            products.add(product);
+        }
+        ProductBatchResponseDTO batch = new ProductBatchResponseDTO();
+        batch.setProducts(products);
+        batch.setMissingIds(new ArrayList<>(Collections.singletonList(size + 1L)));
+        batch.setNotModifiedIds(new ArrayList<>());
+        return batch;
+    }
+}
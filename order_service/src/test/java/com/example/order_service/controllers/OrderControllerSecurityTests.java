@@ -0,0 +1,109 @@
+package com.example.order_service.controllers;
+
+import com.example.order_service.services.ConcurrencyLimiters;
+import com.example.order_service.services.IdempotencyStore;
+import com.example.order_service.services.OrderAcceptanceService;
+import com.example.order_service.services.OrderBulkService;
+import com.example.order_service.services.OrderExportService;
+import com.example.order_service.services.OrderService;
+import com.example.order_service.services.ProductCache;
+import com.example.order_service.services.ReactiveOrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Runs the endpoints other services call through the real security chain
+@WebMvcTest(controllers = {OrderController.class, ProductCacheController.class},
+        properties = "auth.token.secret=" + OrderControllerSecurityTests.SECRET)
+class OrderControllerSecurityTests {
+
+    static final String SECRET = "test-secret-0123456789abcdef-0123456789";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private OrderService orderService;
+    @MockBean
+    private OrderExportService orderExportService;
+    @MockBean
+    private OrderBulkService orderBulkService;
+    @MockBean
+    private OrderAcceptanceService orderAcceptanceService;
+    @MockBean
+    private ReactiveOrderService reactiveOrderService;
+    @MockBean
+    private ConcurrencyLimiters limiters;
+    @MockBean
+    private IdempotencyStore idempotencyStore;
+    @MockBean
+    private ProductCache productCache;
+    // Stand in for OrderConfig's clients, which need the load balancer
+    @MockBean(name = "loadBalancedRestTemplate")
+    private RestTemplate loadBalancedRestTemplate;
+    @MockBean(name = "restTemplate")
+    private RestTemplate restTemplate;
+    @MockBean(name = "loadBalancedWebClient")
+    private WebClient loadBalancedWebClient;
+    @MockBean(name = "webClient")
+    private WebClient webClient;
+
+    @Test
+    void bulkIngestionNeedsNoCredentials() throws Exception {
+        when(orderBulkService.createOrders(anyList())).thenReturn(new ArrayList<>());
+
+        mockMvc.perform(post("/api/orders/bulk").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void otherWritesStillRequireAuthentication() throws Exception {
+        mockMvc.perform(post("/api/orders/1").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void cacheInvalidationNeedsAServiceToken() throws Exception {
+        mockMvc.perform(delete("/api/cache/products/1"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete("/api/cache/products/1").header(HttpHeaders.AUTHORIZATION, "Bearer " + token(7, "company")))
+                .andExpect(status().isForbidden());
+        verifyNoInteractions(productCache);
+
+        mockMvc.perform(delete("/api/cache/products/1").header(HttpHeaders.AUTHORIZATION, "Bearer " + token(0, "service")))
+                .andExpect(status().isNoContent());
+        verify(productCache).invalidate(1L);
+    }
+
+    // Signed the way the services sign them
+    private static String token(long userId, String authType) throws Exception {
+        long now = System.currentTimeMillis() / 1000;
+        String claims = "{\"sub\":\"" + userId + "\",\"authType\":\"" + authType + "\",\"exp\":" + (now + 60) + "}";
+        String content = "eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9."
+                + Base64.getUrlEncoder().withoutPadding().encodeToString(claims.getBytes(StandardCharsets.UTF_8));
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return content + "." + Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(mac.doFinal(content.getBytes(StandardCharsets.US_ASCII)));
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.order_service.repositories;
+
+import com.example.order_service.dto.OrderExportRowDTO;
+import com.example.order_service.dto.OrderResponseDTO;
+import com.example.order_service.entities.Order;
+import com.example.order_service.entities.OrderProduct;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class OrderRepositoryTests {
+
+    private static final int ORDER_COUNT = 20;
+    private static final int LINES_PER_ORDER = 3;
+
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Statistics statistics;
+    private Long firstOrderId;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            Order order = new Order(1L, 2L, i % 2 == 0 ? "u-c" : "u-u", 10.0);
+            List<OrderProduct> orderProducts = new ArrayList<>();
+            for (int line = 0; line < LINES_PER_ORDER; line++) {
+                orderProducts.add(new OrderProduct(order, 100L + line, line + 1));
+            }
+            order.setOrderProducts(orderProducts);
+            Order saved = entityManager.persist(order);
+            if (firstOrderId == null) {
+                firstOrderId = saved.getId();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findAllWithProductsUsesSingleStatement() {
+        List<OrderResponseDTO> orders = orderRepository.findAllWithProducts().stream()
+                .map(OrderResponseDTO::from).collect(Collectors.toList());
+
+        assertEquals(ORDER_COUNT, orders.size());
+        assertTrue(orders.stream().allMatch(order -> order.getOrderProducts().size() == LINES_PER_ORDER));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findWithProductsByIdUsesSingleStatement() {
+        OrderResponseDTO order = orderRepository.findWithProductsById(firstOrderId).map(OrderResponseDTO::from).get();
+
+        assertEquals(LINES_PER_ORDER, order.getOrderProducts().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findWithProductsByTypeUsesSingleStatement() {
+        List<OrderResponseDTO> orders = orderRepository.findWithProductsByType("u-c").stream()
+                .map(OrderResponseDTO::from).collect(Collectors.toList());
+
+        assertEquals(ORDER_COUNT / 2, orders.size());
+        assertTrue(orders.stream().allMatch(order -> "u-c".equals(order.getType())));
+        assertTrue(orders.stream().allMatch(order -> order.getOrderProducts().size() == LINES_PER_ORDER));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void pendingAndRejectedOrdersAreLeftOutOfReads() {
+        Long pendingId = persistWithStatus(Order.STATUS_PENDING);
+        persistWithStatus(Order.STATUS_REJECTED);
+        Long acceptedId = persistWithStatus(Order.STATUS_ACCEPTED);
+
+        assertEquals(ORDER_COUNT + 1, orderRepository.findAllWithProducts().size());
+        assertEquals(Collections.singletonList(acceptedId), orderRepository.findWithProductsByType("u-s").stream()
+                .map(Order::getId).collect(Collectors.toList()));
+        PageRequest page = PageRequest.of(0, 100);
+        assertEquals(ORDER_COUNT + 1, orderRepository.findCustomerHistoryIds(2L, null, page).size());
+        assertEquals(ORDER_COUNT + 1, orderRepository.findOwnerHistoryIds(1L, null, page).size());
+        try (Stream<OrderExportRowDTO> rows = orderRepository.streamAllRows()) {
+            assertEquals(ORDER_COUNT + 1, rows.map(OrderExportRowDTO::getOrderId).distinct().count());
+        }
+        assertFalse(orderRepository.findVersionById(pendingId).isPresent());
+        assertTrue(orderRepository.findVersionById(acceptedId).isPresent());
+        // The acceptance pipeline still sees them
+        assertTrue(orderRepository.findWithProductsById(pendingId).isPresent());
+    }
+
+    @Test
+    void rejectedOrdersArePurgedWithTheirLines() {
+        Long pendingId = persistWithStatus(Order.STATUS_PENDING);
+        Long rejectedId = persistWithStatus(Order.STATUS_REJECTED);
+        Date createdBefore = new Date(System.currentTimeMillis() + 60_000);
+
+        orderRepository.deleteLinesByStatusCreatedBefore(Order.STATUS_REJECTED, createdBefore);
+        int deleted = orderRepository.deleteByStatusCreatedBefore(Order.STATUS_REJECTED, createdBefore);
+
+        assertEquals(1, deleted);
+        assertFalse(orderRepository.existsById(rejectedId));
+        assertTrue(orderRepository.existsById(pendingId));
+        assertEquals(ORDER_COUNT + 1, orderRepository.count());
+        assertEquals((ORDER_COUNT + 1) * LINES_PER_ORDER, ((Number) entityManager.getEntityManager()
+                .createQuery("select count(p) from OrderProduct p").getSingleResult()).intValue());
+    }
+
+    @Test
+    void plainFindAllIssuesOneSelectPerOrder() {
+        // Baseline showing the N+1 pattern the fetch-join queries avoid
+        List<OrderResponseDTO> orders = orderRepository.findAll().stream()
+                .map(OrderResponseDTO::from).collect(Collectors.toList());
+
+        assertEquals(ORDER_COUNT, orders.size());
+        assertEquals(1 + ORDER_COUNT, statistics.getPrepareStatementCount());
+    }
+
+    // Stored the way the acceptance pipeline stores them, with the placeholder type of a pending order
+    private Long persistWithStatus(String status) {
+        // A type of their own, so that reads by type only find these
+        Order order = new Order(1L, 2L, "u-s", 0.0);
+        order.setStatus(status);
+        List<OrderProduct> orderProducts = new ArrayList<>();
+        for (int line = 0; line < LINES_PER_ORDER; line++) {
+            orderProducts.add(new OrderProduct(order, 100L + line, line + 1));
+        }
+        order.setOrderProducts(orderProducts);
+        Long id = entityManager.persist(order).getId();
+        entityManager.flush();
+        entityManager.clear();
+        return id;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.order_service.repositories;
+
+import com.example.order_service.entities.Order;
+import com.example.order_service.entities.OrderProduct;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Versions are incremented when a transaction commits, so each step runs in a transaction of its own
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderVersionTests {
+
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManager entityManager;
+
+    private TransactionTemplate transaction;
+    private Long orderId;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        Order order = new Order(1L, 2L, "u-u", 10.0);
+        List<OrderProduct> orderProducts = new ArrayList<>();
+        orderProducts.add(new OrderProduct(order, 100L, 1));
+        order.setOrderProducts(orderProducts);
+        orderId = transaction.execute(status -> orderRepository.save(order).getId());
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+    }
+
+    @Test
+    void changingOnlyALineIncrementsTheVersionOfALockedOrder() {
+        long before = version();
+
+        // As OrderService.updateOrder does it: the lock is taken on the order alone, not on its fetched lines
+        transaction.executeWithoutResult(status -> {
+            Order order = orderRepository.findWithProductsById(orderId).get();
+            entityManager.lock(order, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+            order.getOrderProducts().get(0).setQuantity(5);
+        });
+
+        assertTrue(version() > before);
+    }
+
+    private long version() {
+        return transaction.execute(status -> orderRepository.findById(orderId).get().getVersion());
+    }
+}
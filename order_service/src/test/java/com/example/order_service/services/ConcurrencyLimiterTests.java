@@ -0,0 +1,170 @@
+package com.example.order_service.services;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimiterTests {
+
+    // Simulated dependency: serves CAPACITY calls in SERVICE_MS each, extra concurrent calls queue behind them
+    private static final int CAPACITY = 8;
+    private static final long SERVICE_MS = 10;
+    private static final int CALLERS = 64;
+    private static final long RUN_MS = 3000;
+
+    @Test
+    @Tag("benchmark")
+    void limiterHoldsLatencyUnderOverload() throws InterruptedException {
+        LoadResult unlimited = runLoad(null);
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("dependency", 20, 4, 200);
+        LoadResult limited = runLoad(limiter);
+
+        System.out.println("Overload with " + CALLERS + " callers on capacity " + CAPACITY + ": unlimited p50/p99 "
+                + unlimited.percentile(50) + "/" + unlimited.percentile(99) + " ms, limited p50/p99 "
+                + limited.percentile(50) + "/" + limited.percentile(99) + " ms with limit " + limiter.getLimit()
+                + ", " + limiter.getRejected() + " rejected");
+
+        assertTrue(limited.percentile(99) * 2 < unlimited.percentile(99),
+                "limited p99 " + limited.percentile(99) + " ms vs unlimited " + unlimited.percentile(99) + " ms");
+        assertTrue(limiter.getRejected() > 0);
+        assertTrue(limiter.getLimit() < CALLERS, "limit stayed at " + limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void rejectsCallsOverTheLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("dependency", 4, 4, 4);
+        List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            permits.add(limiter.acquire());
+        }
+
+        assertThrows(RejectedExecutionException.class, limiter::acquire);
+        permits.get(0).success();
+        permits.get(0).success();
+        assertEquals(3, limiter.getInFlight());
+        limiter.acquire();
+        assertEquals(1, limiter.getRejected());
+    }
+
+    @Test
+    void overloadFailuresShrinkTheLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("dependency", 100, 4, 200);
+
+        assertThrows(ResourceAccessException.class, () -> limiter.call(() -> {
+            throw new ResourceAccessException("timed out", new IOException("Read timed out"));
+        }));
+        assertEquals(90, limiter.getLimit());
+        // A request the dependency rejected on its merits says nothing about its load
+        assertThrows(IllegalArgumentException.class, () -> limiter.call(() -> {
+            throw new IllegalArgumentException("bad request");
+        }));
+        assertEquals(90, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void rejectionsFromNestedLimitersDoNotShrinkTheOuterLimit() {
+        ConcurrencyLimiter outer = new ConcurrencyLimiter("create-order", 100, 4, 200);
+        ConcurrencyLimiter inner = new ConcurrencyLimiter("auth-service", 1, 1, 200);
+        ConcurrencyLimiter.Permit busy = inner.acquire();
+
+        assertThrows(RejectedExecutionException.class, () -> outer.call(() -> inner.call(() -> "identity")));
+        // Also when the rejection comes back wrapped, as from a lookup future
+        assertThrows(IllegalStateException.class, () -> outer.call(() -> {
+            try {
+                return inner.call(() -> "identity");
+            } catch (RejectedExecutionException e) {
+                throw new IllegalStateException("lookup failed", e);
+            }
+        }));
+        busy.ignore();
+
+        assertEquals(100, outer.getLimit());
+        assertEquals(0, outer.getInFlight());
+        // The pool or queue in front of a dependency filling up still counts
+        assertThrows(RejectedExecutionException.class, () -> outer.call(() -> {
+            throw new RejectedExecutionException("Order lookup pool is saturated");
+        }));
+        assertEquals(90, outer.getLimit());
+    }
+
+    private static LoadResult runLoad(ConcurrencyLimiter limiter) throws InterruptedException {
+        AtomicInteger active = new AtomicInteger();
+        LoadResult result = new LoadResult();
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RUN_MS);
+        for (int i = 0; i < CALLERS; i++) {
+            callers.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    try {
+                        if (limiter == null) {
+                            callDependency(active);
+                        } else {
+                            limiter.call(() -> callDependency(active));
+                        }
+                        result.record(System.nanoTime() - start);
+                    } catch (RejectedExecutionException e) {
+                        // Shed immediately, the caller would answer 503 and back off
+                        pause(SERVICE_MS);
+                    }
+                }
+            });
+        }
+        callers.shutdown();
+        callers.awaitTermination(RUN_MS + 10_000, TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    private static Void callDependency(AtomicInteger active) {
+        int concurrent = active.incrementAndGet();
+        try {
+            // Past its capacity the dependency slows down in proportion to the load
+            pause(SERVICE_MS * Math.max(1, (concurrent + CAPACITY - 1) / CAPACITY));
+            return null;
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    private static void pause(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class LoadResult {
+        private final List<Long> latenciesNanos = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicLong count = new AtomicLong();
+
+        void record(long nanos) {
+            latenciesNanos.add(nanos);
+            count.incrementAndGet();
+        }
+
+        long percentile(int percentile) {
+            List<Long> sorted = new ArrayList<>(latenciesNanos);
+            Collections.sort(sorted);
+            int index = Math.min(sorted.size() - 1, (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1);
+            return TimeUnit.NANOSECONDS.toMillis(sorted.get(Math.max(0, index)));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.order_service.services;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.example.order_service.dto.ProductBatchResponseDTO;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerRequest;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Two local product_service stubs behind a round-robin load balancer, one of them answering after SLOW_MS
+class HedgedProductLookupTests {
+
+    private static final long SLOW_MS = 300;
+    private static final int LOOKUPS = 20;
+    private static final String BATCH = "{\"products\":[{\"id\":1,\"name\":\"Pen\",\"price\":2.5,\"ownerId\":7}],\"missingIds\":[]}";
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeAll
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (HttpServer server : servers) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void hedgeOnTheFastInstanceWinsOverTheSlowOne() {
+        HedgedProductLookup lookup = newLookup(100, startStub(0, 200), startStub(SLOW_MS, 200));
+
+        long worstMs = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            long start = System.nanoTime();
+            ProductBatchResponseDTO response = lookup.fetch(Collections.singletonList(1L)).block();
+            worstMs = Math.max(worstMs, (System.nanoTime() - start) / 1_000_000);
+            assertEquals(1L, response.getProducts().get(0).getId());
+        }
+
+        double fired = count("fired");
+        double won = count("won");
+        System.out.println("Hedged product lookups: " + LOOKUPS + " lookups, " + fired + " hedges fired, " + won
+                + " won, worst lookup " + worstMs + " ms (slow instance " + SLOW_MS + " ms)");
+        // Every lookup that landed on the slow instance was rescued by the fast one
+        assertTrue(won >= LOOKUPS / 2 - 1, won + " hedges won");
+        assertTrue(fired <= LOOKUPS, fired + " hedges fired");
+        assertTrue(worstMs < SLOW_MS, "worst lookup " + worstMs + " ms");
+    }
+
+    @Test
+    void budgetCapsTheNumberOfHedges() {
+        HedgedProductLookup lookup = newLookup(10, startStub(0, 200), startStub(SLOW_MS, 200));
+
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookup.fetch(Collections.singletonList(1L)).block();
+        }
+
+        assertTrue(count("fired") <= LOOKUPS * 0.1, count("fired") + " hedges fired");
+        assertTrue(count("budget_exhausted") > 0);
+    }
+
+    @Test
+    void failureOnBothInstancesIsReported() {
+        HedgedProductLookup lookup = newLookup(100, startStub(0, 503), startStub(0, 503));
+
+        WebClientResponseException e = assertThrows(WebClientResponseException.class,
+                () -> lookup.fetch(Collections.singletonList(1L)).block());
+        assertEquals(503, e.getRawStatusCode());
+    }
+
+    private HedgedProductLookup newLookup(double budgetPercent, ServiceInstance... instances) {
+        return new HedgedProductLookup(new RoundRobinLoadBalancer(instances), WebClient.create(), meterRegistry,
+                true, 95, 20, budgetPercent);
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.get("order.product-hedge").tag("outcome", outcome).counter().count();
+    }
+
+    private ServiceInstance startStub(long delayMs, int status) {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 50);
+            server.createContext("/productService/api/products/batch", exchange -> {
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                byte[] body = BATCH.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                } catch (IOException e) {
+                    // The hedge won and the client hung up
+                }
+            });
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.start();
+            servers.add(server);
+            return new DefaultServiceInstance("product-" + servers.size(), "order-service", "127.0.0.1",
+                    server.getAddress().getPort(), false);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class RoundRobinLoadBalancer implements LoadBalancerClient {
+        private final ServiceInstance[] instances;
+        private final AtomicInteger next = new AtomicInteger();
+
+        RoundRobinLoadBalancer(ServiceInstance... instances) {
+            this.instances = instances;
+        }
+
+        @Override
+        public ServiceInstance choose(String serviceId) {
+            return instances[Math.floorMod(next.getAndIncrement(), instances.length)];
+        }
+
+        @Override
+        public <T> ServiceInstance choose(String serviceId, Request<T> request) {
+            return choose(serviceId);
+        }
+
+        @Override
+        public <T> T execute(String serviceId, LoadBalancerRequest<T> request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T> T execute(String serviceId, ServiceInstance serviceInstance, LoadBalancerRequest<T> request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public URI reconstructURI(ServiceInstance instance, URI original) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.order_service.services;
+
+import com.example.order_service.entities.IdempotencyRecord;
+import com.example.order_service.entities.Order;
+import com.example.order_service.repositories.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyStoreTests {
+
+    private static final Order REQUEST = new Order(1L, 2L, "u-u", 10.0);
+
+    private IdempotencyRecordRepository repository;
+    private IdempotencyStore store;
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        repository = Mockito.mock(IdempotencyRecordRepository.class);
+        when(repository.findById(anyString())).thenReturn(Optional.empty());
+        store = new IdempotencyStore(repository, new ObjectMapper(), new SimpleMeterRegistry(), 100, 60, 1000);
+    }
+
+    @Test
+    void retryWithTheSameKeyGetsTheFirstResponse() {
+        ResponseEntity<Order> first = store.execute("POST /api/orders", "k1", REQUEST, Order.class, () -> create(7L)).block();
+        ResponseEntity<Order> retry = store.execute("POST /api/orders", "k1", REQUEST, Order.class, () -> create(8L)).block();
+
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals(first.getBody().getId(), retry.getBody().getId());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        verify(repository).save(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    void concurrentDuplicateWaitsForTheFirstAttempt() {
+        Sinks.One<ResponseEntity<Order>> firstAttempt = Sinks.one();
+        Mono<ResponseEntity<Order>> first = store.execute("POST /api/orders", "k1", REQUEST, Order.class, () -> {
+            executions.incrementAndGet();
+            return firstAttempt.asMono();
+        }).cache();
+        first.subscribe();
+
+        Mono<ResponseEntity<Order>> duplicate = store.execute("POST /api/orders", "k1", REQUEST, Order.class, () -> create(8L)).cache();
+        duplicate.subscribe();
+        Order order = new Order(1L, 2L, "u-u", 10.0);
+        order.setId(7L);
+        firstAttempt.tryEmitValue(ResponseEntity.status(HttpStatus.CREATED).body(order));
+
+        assertEquals(7L, duplicate.block().getBody().getId());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void serverErrorsAreNotRemembered() {
+        store.execute("POST /api/orders", "k1", REQUEST, Order.class,
+                () -> Mono.fromSupplier(() -> {
+                    executions.incrementAndGet();
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).<Order>build();
+                })).block();
+        ResponseEntity<Order> retry = store.execute("POST /api/orders", "k1", REQUEST, Order.class, () -> create(7L)).block();
+
+        assertEquals(2, executions.get());
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertNull(retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+    }
+
+    @Test
+    void storedResponseIsReplayedAfterRestart() {
+        when(repository.findById("POST /api/orders:k1")).thenReturn(Optional.of(new IdempotencyRecord(
+                "POST /api/orders:k1", 201, "{\"id\":7,\"ownerId\":1,\"customerId\":2,\"type\":\"u-u\",\"cost\":10.0}",
+                null, null, new Date())));
+
+        ResponseEntity<Order> retry = store.execute("POST /api/orders", "k1", REQUEST, Order.class, () -> create(8L)).block();
+
+        assertEquals(0, executions.get());
+        assertEquals(7L, retry.getBody().getId());
+        verify(repository, never()).save(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    void sameKeyOnAnotherEndpointIsAnotherRequest() {
+        store.execute("POST /api/orders", "k1", REQUEST, Order.class, () -> create(7L)).block();
+        store.execute("POST /api/orders?async=true", "k1", REQUEST, Order.class, () -> create(8L)).block();
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void sameKeyWithAnotherBodyIsRefused() {
+        store.execute("POST /api/orders", "k1", REQUEST, Order.class, () -> create(7L)).block();
+        ResponseEntity<Order> retry = store.execute("POST /api/orders", "k1", new Order(1L, 3L, "u-u", 10.0), Order.class,
+                () -> create(8L)).block();
+
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, retry.getStatusCode());
+        assertNull(retry.getBody());
+    }
+
+    @Test
+    void sameBodyInAnotherObjectIsReplayed() {
+        store.execute("POST /api/orders", "k1", REQUEST, Order.class, () -> create(7L)).block();
+        ResponseEntity<Order> retry = store.execute("POST /api/orders", "k1", new Order(1L, 2L, "u-u", 10.0), Order.class,
+                () -> create(8L)).block();
+
+        assertEquals(1, executions.get());
+        assertEquals(7L, retry.getBody().getId());
+    }
+
+    private Mono<ResponseEntity<Order>> create(Long id) {
+        return Mono.fromSupplier(() -> {
+            executions.incrementAndGet();
+            Order order = new Order(1L, 2L, "u-u", 10.0);
+            order.setId(id);
+            return ResponseEntity.status(HttpStatus.CREATED).body(order);
+        });
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.order_service.services;
+
+import com.example.order_service.dto.AuthIdentity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdentityCacheTests {
+
+    private static final int CALLERS = 8;
+
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setUp() {
+        callers = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void concurrentMissesShareOneLookup() throws Exception {
+        IdentityCache cache = new IdentityCache(100, 300, 10, new SimpleMeterRegistry());
+        CountDownLatch lookup = new CountDownLatch(1);
+        AtomicInteger lookups = new AtomicInteger();
+
+        List<Future<AuthIdentity>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(callers.submit(() -> cache.get(7L, id -> {
+                lookups.incrementAndGet();
+                await(lookup);
+                return AuthIdentity.of("company");
+            })));
+        }
+        Thread.sleep(100);
+        lookup.countDown();
+
+        for (Future<AuthIdentity> result : results) {
+            assertEquals("company", result.get().getAuthType());
+        }
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    void concurrentAsyncMissesShareOneLookup() {
+        IdentityCache cache = new IdentityCache(100, 300, 10, new SimpleMeterRegistry());
+        CompletableFuture<AuthIdentity> lookup = new CompletableFuture<>();
+        AtomicInteger lookups = new AtomicInteger();
+
+        List<CompletableFuture<AuthIdentity>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(cache.getAsync(7L, id -> {
+                lookups.incrementAndGet();
+                return lookup;
+            }));
+        }
+        lookup.complete(AuthIdentity.of("user"));
+
+        for (CompletableFuture<AuthIdentity> result : results) {
+            assertEquals("user", result.join().getAuthType());
+        }
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    void knownIdentitiesAreCachedForTheTtl() {
+        IdentityCache cache = new IdentityCache(100, 300, 10, new SimpleMeterRegistry());
+        AtomicInteger lookups = new AtomicInteger();
+
+        cache.get(7L, id -> count(lookups, AuthIdentity.of("user")));
+        AuthIdentity identity = cache.get(7L, id -> count(lookups, AuthIdentity.of("company")));
+
+        assertEquals("user", identity.getAuthType());
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    void unknownIdsExpireAfterTheNegativeTtl() {
+        // Without a negative TTL an unknown id is looked up again every time, a known one is still cached
+        IdentityCache cache = new IdentityCache(100, 300, 0, new SimpleMeterRegistry());
+        AtomicInteger lookups = new AtomicInteger();
+
+        assertFalse(cache.get(7L, id -> count(lookups, AuthIdentity.missing())).exists());
+        assertEquals("user", cache.get(7L, id -> count(lookups, AuthIdentity.of("user"))).getAuthType());
+        cache.get(7L, id -> count(lookups, AuthIdentity.of("company")));
+
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    void unknownIdsAreRememberedWithinTheNegativeTtl() {
+        IdentityCache cache = new IdentityCache(100, 300, 10, new SimpleMeterRegistry());
+        AtomicInteger lookups = new AtomicInteger();
+
+        cache.get(7L, id -> count(lookups, AuthIdentity.missing()));
+        AuthIdentity identity = cache.get(7L, id -> count(lookups, AuthIdentity.of("user")));
+
+        assertSame(AuthIdentity.missing(), identity);
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    void invalidatedIdentityIsLookedUpAgain() {
+        IdentityCache cache = new IdentityCache(100, 300, 10, new SimpleMeterRegistry());
+
+        cache.get(7L, id -> AuthIdentity.of("user"));
+        cache.invalidate(7L);
+
+        assertEquals("company", cache.get(7L, id -> AuthIdentity.of("company")).getAuthType());
+    }
+
+    @Test
+    void failedLookupsAreNotCached() {
+        IdentityCache cache = new IdentityCache(100, 300, 10, new SimpleMeterRegistry());
+
+        assertThrows(IllegalStateException.class, () -> cache.get(7L, id -> {
+            throw new IllegalStateException("auth-service unavailable");
+        }));
+
+        assertEquals("user", cache.get(7L, id -> AuthIdentity.of("user")).getAuthType());
+    }
+
+    private static AuthIdentity count(AtomicInteger lookups, AuthIdentity identity) {
+        lookups.incrementAndGet();
+        return identity;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.order_service.services;
+
+import com.example.order_service.dto.OrderStatusDTO;
+import com.example.order_service.entities.Order;
+import com.example.order_service.entities.OrderProduct;
+import com.example.order_service.repositories.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderAcceptanceServiceTests {
+
+    private OrderRepository orderRepository;
+    private OrderService orderService;
+    private ThreadPoolExecutor acceptanceExecutor;
+    private OrderAcceptanceService acceptanceService;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = Mockito.mock(OrderRepository.class);
+        orderService = Mockito.mock(OrderService.class);
+        acceptanceExecutor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1));
+        acceptanceService = new OrderAcceptanceService(orderRepository, orderService, Mockito.mock(OrderViewCache.class),
+                acceptanceExecutor, 24);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            if (order.getId() == null) {
+                order.setId(42L);
+            }
+            return order;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        acceptanceExecutor.shutdownNow();
+    }
+
+    @Test
+    void submitOrderStoresPendingOrderAndAcceptsItInTheBackground() {
+        Order order = newOrder();
+        when(orderRepository.findWithProductsById(42L)).thenReturn(Optional.of(order));
+
+        OrderStatusDTO status = acceptanceService.submitOrder(order);
+
+        assertEquals(42L, status.getId());
+        assertEquals(Order.STATUS_PENDING, status.getStatus());
+        verify(orderService, timeout(1000)).priceOrder(order);
+        verify(orderRepository, timeout(1000).times(2)).save(order);
+        assertEquals(Order.STATUS_ACCEPTED, order.getStatus());
+    }
+
+    @Test
+    void submitOrderIgnoresLineIdsSentByTheClient() {
+        Order order = newOrder();
+        order.getOrderProducts().get(0).setId(500L);
+
+        acceptanceService.submitOrder(order);
+
+        assertNull(order.getOrderProducts().get(0).getId());
+    }
+
+    @Test
+    void processLeavesOrderPendingOnTransientFailure() {
+        Order order = newOrder();
+        order.setId(42L);
+        order.setStatus(Order.STATUS_PENDING);
+        when(orderRepository.findWithProductsById(42L)).thenReturn(Optional.of(order));
+        doThrow(new ResourceAccessException("connection refused")).when(orderService).priceOrder(order);
+
+        acceptanceService.process(42L);
+
+        assertEquals(Order.STATUS_PENDING, order.getStatus());
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    void processLeavesOrderPendingWhenLookupsTimeOutOrDependenciesFail() {
+        String timedOut = "Order lookups did not complete within 800 ms";
+        RuntimeException[] failures = {
+                new RuntimeException(timedOut, new TimeoutException(timedOut)),
+                new WebClientRequestException(new IOException("Connection refused"), HttpMethod.POST,
+                        URI.create("http://product-service/productService/api/products/batch"), new HttpHeaders()),
+                WebClientResponseException.create(503, "Service Unavailable", new HttpHeaders(), null, null),
+                new RejectedExecutionException("Order lookup pool is saturated")};
+        for (RuntimeException failure : failures) {
+            Order order = newOrder();
+            order.setId(42L);
+            order.setStatus(Order.STATUS_PENDING);
+            when(orderRepository.findWithProductsById(42L)).thenReturn(Optional.of(order));
+            doThrow(failure).when(orderService).priceOrder(order);
+
+            acceptanceService.process(42L);
+
+            assertEquals(Order.STATUS_PENDING, order.getStatus(), failure.toString());
+        }
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    void processRejectsOrderWhenADependencyRefusesIt() {
+        Order order = newOrder();
+        order.setId(42L);
+        order.setStatus(Order.STATUS_PENDING);
+        when(orderRepository.findWithProductsById(42L)).thenReturn(Optional.of(order));
+        doThrow(WebClientResponseException.create(404, "Not Found", new HttpHeaders(), null, null))
+                .when(orderService).priceOrder(order);
+
+        acceptanceService.process(42L);
+
+        assertEquals(Order.STATUS_REJECTED, order.getStatus());
+        verify(orderRepository).save(order);
+    }
+
+    @Test
+    void processRejectsOrderWhenValidationFails() {
+        Order order = newOrder();
+        order.setId(42L);
+        order.setStatus(Order.STATUS_PENDING);
+        when(orderRepository.findWithProductsById(42L)).thenReturn(Optional.of(order));
+        doThrow(new RuntimeException("Owner or customer not found in auth-service")).when(orderService).priceOrder(order);
+
+        acceptanceService.process(42L);
+
+        assertEquals(Order.STATUS_REJECTED, order.getStatus());
+        assertEquals("Owner or customer not found in auth-service", order.getStatusMessage());
+        verify(orderRepository).save(order);
+    }
+
+    @Test
+    void submitOrderIsRefusedWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderRepository.findWithProductsById(any())).thenAnswer(invocation -> {
+            release.await();
+            return Optional.empty();
+        });
+        acceptanceService.submitOrder(newOrder());
+        // The single worker is busy, the next order fills the queue
+        Order queued = newOrder();
+        queued.setId(null);
+        doAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            order.setId(43L);
+            return order;
+        }).when(orderRepository).save(queued);
+        waitForWorkerToStart();
+        acceptanceService.submitOrder(queued);
+
+        assertThrows(RejectedExecutionException.class, () -> acceptanceService.submitOrder(newOrder()));
+        release.countDown();
+    }
+
+    private void waitForWorkerToStart() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (acceptanceExecutor.getActiveCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static Order newOrder() {
+        Order order = new Order(1L, 2L, null, 0);
+        List<OrderProduct> orderProducts = new ArrayList<>();
+        orderProducts.add(new OrderProduct(order, 10L, 2));
+        order.setOrderProducts(orderProducts);
+        return order;
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.order_service.services;
+
+import com.example.order_service.dto.AuthIdentity;
+import com.example.order_service.dto.BulkOrderResultDTO;
+import com.example.order_service.entities.Order;
+import com.example.order_service.entities.OrderProduct;
+import com.example.order_service.entities.Product;
+import com.example.order_service.repositories.OrderRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Each chunk commits in its own transaction, so the test must not wrap the service in one
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "logging.level.root=INFO"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderBulkServiceTests {
+
+    private static final int ORDER_COUNT = 200;
+    private static final int BENCHMARK_ORDER_COUNT = 2000;
+    private static final int LINES_PER_ORDER = 3;
+    private static final int BATCH_SIZE = 50;
+    private static final int CHUNK_SIZE = 500;
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private ExecutorService lookupExecutor;
+    private CountingAuthClient authClient;
+    private CountingProductClient productClient;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        lookupExecutor = Executors.newFixedThreadPool(4);
+        authClient = new CountingAuthClient();
+        productClient = new CountingProductClient();
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        lookupExecutor.shutdownNow();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            entityManager.createQuery("delete from OrderProduct").executeUpdate();
+            entityManager.createQuery("delete from Order").executeUpdate();
+        });
+    }
+
+    @Test
+    void createOrdersBatchesInsertsAndLooksUpEachIdOnce() {
+        List<BulkOrderResultDTO> results = createOrders(ORDER_COUNT);
+
+        assertEquals(ORDER_COUNT, results.size());
+        assertTrue(results.stream().allMatch(result -> BulkOrderResultDTO.CREATED.equals(result.getStatus())));
+        assertEquals(ORDER_COUNT, orderRepository.count());
+        // One batch call for all products, one lookup per distinct party
+        assertEquals(1, productClient.calls.get());
+        assertEquals(11, authClient.calls.get());
+        // Rows go out in batches of BATCH_SIZE, plus one sequence call per 50 ids for each table
+        long rows = ORDER_COUNT * (1 + LINES_PER_ORDER);
+        assertTrue(statistics.getPrepareStatementCount() < rows / 10,
+                "prepared " + statistics.getPrepareStatementCount() + " statements for " + rows + " rows");
+    }
+
+    @Test
+    @Tag("benchmark")
+    void bulkCreateThroughput() {
+        long start = System.nanoTime();
+        List<BulkOrderResultDTO> results = createOrders(BENCHMARK_ORDER_COUNT);
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        System.out.println("Bulk created " + BENCHMARK_ORDER_COUNT + " orders in " + elapsedMs + " ms ("
+                + BENCHMARK_ORDER_COUNT * 1000L / elapsedMs + " orders/s), " + statistics.getPrepareStatementCount()
+                + " statements prepared");
+
+        assertEquals(BENCHMARK_ORDER_COUNT, results.size());
+    }
+
+    @Test
+    void createOrdersReportsRejectedOrdersByIndex() {
+        OrderBulkService bulkService = new OrderBulkService(entityManager, transactionManager, authClient,
+                productClient, lookupExecutor, BATCH_SIZE, CHUNK_SIZE);
+        List<Order> orders = new ArrayList<>();
+        orders.add(newOrder(1L, 2L, 0));
+        orders.add(newOrder(1L, CountingAuthClient.MISSING_ID, 1));
+        Order unknownProduct = newOrder(1L, 2L, 2);
+        unknownProduct.getOrderProducts().get(0).setProductId(CountingProductClient.MISSING_ID);
+        orders.add(unknownProduct);
+
+        List<BulkOrderResultDTO> results = bulkService.createOrders(orders);
+
+        assertEquals(BulkOrderResultDTO.CREATED, results.get(0).getStatus());
+        assertNotNull(results.get(0).getOrderId());
+        assertEquals(BulkOrderResultDTO.REJECTED, results.get(1).getStatus());
+        assertEquals(BulkOrderResultDTO.REJECTED, results.get(2).getStatus());
+        assertEquals(2, results.get(2).getIndex());
+        assertEquals(1, orderRepository.count());
+    }
+
+    @Test
+    void idsSentByTheClientAreIgnored() {
+        OrderBulkService bulkService = new OrderBulkService(entityManager, transactionManager, authClient,
+                productClient, lookupExecutor, BATCH_SIZE, CHUNK_SIZE);
+        Order order = newOrder(1L, 2L, 0);
+        order.setId(12345L);
+        long lineId = 500;
+        for (OrderProduct orderProduct : order.getOrderProducts()) {
+            orderProduct.setId(lineId++);
+        }
+
+        List<BulkOrderResultDTO> results = bulkService.createOrders(Collections.singletonList(order));
+
+        assertEquals(BulkOrderResultDTO.CREATED, results.get(0).getStatus());
+        assertEquals(1, orderRepository.count());
+    }
+
+    private List<BulkOrderResultDTO> createOrders(int count) {
+        OrderBulkService bulkService = new OrderBulkService(entityManager, transactionManager, authClient,
+                productClient, lookupExecutor, BATCH_SIZE, CHUNK_SIZE);
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            orders.add(newOrder(1L, 2L + i % 10, i));
+        }
+        return bulkService.createOrders(orders);
+    }
+
+    private static Order newOrder(Long ownerId, Long customerId, int i) {
+        Order order = new Order(ownerId, customerId, null, 0);
+        List<OrderProduct> orderProducts = new ArrayList<>();
+        for (int line = 0; line < LINES_PER_ORDER; line++) {
+            orderProducts.add(new OrderProduct(order, 100L + (i + line) % 20, line + 1));
+        }
+        order.setOrderProducts(orderProducts);
+        return order;
+    }
+
+    private static class CountingAuthClient extends AuthClient {
+        static final long MISSING_ID = 999L;
+        final AtomicInteger calls = new AtomicInteger();
+
+        CountingAuthClient() {
+            super(null, null, null, null);
+        }
+
+        @Override
+        public AuthIdentity getIdentity(Long id) {
+            calls.incrementAndGet();
+            if (id == MISSING_ID) {
+                return AuthIdentity.missing();
+            }
+            return AuthIdentity.of(id == 1L ? "user" : "company");
+        }
+    }
+
+    private static class CountingProductClient extends ProductClient {
+        static final long MISSING_ID = 9999L;
+        final AtomicInteger calls = new AtomicInteger();
+
+        CountingProductClient() {
+            super(null, null, null, null, null);
+        }
+
+        @Override
+        public Map<Long, Product> findProducts(Collection<Long> ids) {
+            calls.incrementAndGet();
+            Map<Long, Product> products = new HashMap<>();
+            for (Long id : ids) {
+                if (id != MISSING_ID) {
+                    Product product = new Product("p" + id, "d", 2.5, 1L);
+                    product.setId(id);
+                    products.put(id, product);
+                }
+            }
+            return products;
+        }
+    }
+}
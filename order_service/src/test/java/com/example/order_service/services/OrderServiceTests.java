@@ -0,0 +1,234 @@
+package com.example.order_service.services;
+
+import com.example.order_service.dto.AuthIdentity;
+import com.example.order_service.entities.Order;
+import com.example.order_service.entities.OrderProduct;
+import com.example.order_service.entities.Product;
+import com.example.order_service.repositories.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderServiceTests {
+
+    private static final long LOOKUP_DELAY_MS = 300;
+
+    private ExecutorService lookupExecutor;
+    private OrderRepository orderRepository;
+    private EntityManager entityManager;
+    private OrderViewCache orderViewCache;
+
+    @BeforeEach
+    void setUp() {
+        lookupExecutor = Executors.newFixedThreadPool(4);
+        orderRepository = Mockito.mock(OrderRepository.class);
+        entityManager = Mockito.mock(EntityManager.class);
+        orderViewCache = Mockito.mock(OrderViewCache.class);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        lookupExecutor.shutdownNow();
+    }
+
+    @Test
+    void createOrderLatencyTracksSlowestLookup() {
+        OrderService orderService = new OrderService(orderRepository, entityManager,
+                new DelayedAuthClient(LOOKUP_DELAY_MS, null),
+                new DelayedProductClient(LOOKUP_DELAY_MS, false), orderViewCache, lookupExecutor, 2000);
+
+        long start = System.nanoTime();
+        Order created = orderService.createOrder(newOrder());
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Three lookups of 300 ms each: sequential would take 900 ms, concurrent about 300 ms
+        assertTrue(elapsedMs < 2 * LOOKUP_DELAY_MS, "order took " + elapsedMs + " ms");
+        assertEquals("u-c", created.getType());
+        assertEquals(2 * 10.0 + 3 * 2.5, created.getCost());
+    }
+
+    @Test
+    void createOrderCancelsRemainingLookupsOnFailure() throws InterruptedException {
+        AtomicBoolean authInterrupted = new AtomicBoolean();
+        OrderService orderService = new OrderService(orderRepository, entityManager,
+                new DelayedAuthClient(5000, authInterrupted),
+                new DelayedProductClient(0, true), orderViewCache, lookupExecutor, 10000);
+
+        long start = System.nanoTime();
+        assertThrows(RuntimeException.class, () -> orderService.createOrder(newOrder()));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMs < 1000, "failure took " + elapsedMs + " ms to surface");
+        Thread.sleep(100);
+        assertTrue(authInterrupted.get(), "auth lookups were not cancelled");
+    }
+
+    @Test
+    void createOrderFailsWhenDeadlineExpires() {
+        OrderService orderService = new OrderService(orderRepository, entityManager,
+                new DelayedAuthClient(1000, null),
+                new DelayedProductClient(0, false), orderViewCache, lookupExecutor, 100);
+
+        assertThrows(RuntimeException.class, () -> orderService.createOrder(newOrder()));
+    }
+
+    @Test
+    void updateOrderChangesQuantityInPlaceWithoutRepricing() {
+        DelayedProductClient productClient = new DelayedProductClient(0, false);
+        OrderService orderService = new OrderService(orderRepository, entityManager,
+                new DelayedAuthClient(0, null),
+                productClient, orderViewCache, lookupExecutor, 2000);
+        Order existing = pricedOrder();
+        OrderProduct pen = existing.getOrderProducts().get(0);
+        when(orderRepository.findWithProductsById(5L)).thenReturn(Optional.of(existing));
+
+        Order updated = orderService.updateOrder(5L, orderWithLines(10L, 5, 11L, 3));
+
+        assertTrue(productClient.requested.isEmpty(), "prices fetched for " + productClient.requested);
+        assertEquals(2, updated.getOrderProducts().size());
+        assertSame(pen, updated.getOrderProducts().get(0));
+        assertEquals(5, pen.getQuantity());
+        assertEquals(5 * 10.0 + 3 * 2.5, updated.getCost());
+        // Lines-only changes have to reach the order's version too
+        verify(entityManager).lock(existing, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+    }
+
+    @Test
+    void updateOrderPricesOnlyAddedProductsAndDropsRemovedOnes() {
+        DelayedProductClient productClient = new DelayedProductClient(0, false);
+        OrderService orderService = new OrderService(orderRepository, entityManager,
+                new DelayedAuthClient(0, null),
+                productClient, orderViewCache, lookupExecutor, 2000);
+        Order existing = pricedOrder();
+        OrderProduct pen = existing.getOrderProducts().get(0);
+        when(orderRepository.findWithProductsById(5L)).thenReturn(Optional.of(existing));
+
+        Order updated = orderService.updateOrder(5L, orderWithLines(10L, 2, 12L, 4));
+
+        assertEquals(Collections.singletonList(Collections.singletonList(12L)), productClient.requested);
+        assertEquals(2, updated.getOrderProducts().size());
+        assertSame(pen, updated.getOrderProducts().get(0));
+        assertEquals(12L, updated.getOrderProducts().get(1).getProductId());
+        assertEquals(2.5, updated.getOrderProducts().get(1).getUnitPrice());
+        assertEquals(2 * 10.0 + 4 * 2.5, updated.getCost());
+    }
+
+    // Stored order with unit prices that differ from the current ones, so repricing would show in the cost
+    private static Order pricedOrder() {
+        Order order = new Order(1L, 2L, "u-c", 2 * 10.0 + 3 * 2.5);
+        order.setId(5L);
+        List<OrderProduct> orderProducts = new ArrayList<>();
+        orderProducts.add(pricedLine(order, 10L, 2, 10.0));
+        orderProducts.add(pricedLine(order, 11L, 3, 2.5));
+        order.setOrderProducts(orderProducts);
+        return order;
+    }
+
+    private static OrderProduct pricedLine(Order order, Long productId, int quantity, double unitPrice) {
+        OrderProduct orderProduct = new OrderProduct(order, productId, quantity);
+        orderProduct.setUnitPrice(unitPrice);
+        return orderProduct;
+    }
+
+    private static Order orderWithLines(Long firstProductId, int firstQuantity, Long secondProductId, int secondQuantity) {
+        Order order = new Order(1L, 2L, "u-c", 0);
+        List<OrderProduct> orderProducts = new ArrayList<>();
+        orderProducts.add(new OrderProduct(order, firstProductId, firstQuantity));
+        orderProducts.add(new OrderProduct(order, secondProductId, secondQuantity));
+        order.setOrderProducts(orderProducts);
+        return order;
+    }
+
+    private static Order newOrder() {
+        Order order = new Order(1L, 2L, null, 0);
+        List<OrderProduct> orderProducts = new ArrayList<>();
+        orderProducts.add(new OrderProduct(order, 10L, 2));
+        orderProducts.add(new OrderProduct(order, 11L, 3));
+        order.setOrderProducts(orderProducts);
+        return order;
+    }
+
+    private static void pause(long delayMs) {
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class DelayedAuthClient extends AuthClient {
+        private final long delayMs;
+        private final AtomicBoolean interrupted;
+
+        DelayedAuthClient(long delayMs, AtomicBoolean interrupted) {
+            super(null, null, null, null);
+            this.delayMs = delayMs;
+            this.interrupted = interrupted;
+        }
+
+        @Override
+        public AuthIdentity getIdentity(Long id) {
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                if (interrupted != null) {
+                    interrupted.set(true);
+                }
+                throw new RuntimeException(e);
+            }
+            return AuthIdentity.of(id == 1L ? "user" : "company");
+        }
+    }
+
+    private static class DelayedProductClient extends ProductClient {
+        private final long delayMs;
+        private final boolean fail;
+        final List<List<Long>> requested = new ArrayList<>();
+
+        DelayedProductClient(long delayMs, boolean fail) {
+            super(null, null, null, null, null);
+            this.delayMs = delayMs;
+            this.fail = fail;
+        }
+
+        @Override
+        public Map<Long, Product> getProducts(Collection<Long> ids) {
+            requested.add(new ArrayList<>(ids));
+            pause(delayMs);
+            if (fail) {
+                throw new RuntimeException("Products not found: " + ids);
+            }
+            Map<Long, Product> products = new HashMap<>();
+            for (Long id : ids) {
+                Product product = new Product("p" + id, "d", id == 10L ? 10.0 : 2.5, 1L);
+                product.setId(id);
+                products.put(id, product);
+            }
+            return products;
+        }
+    }
+}
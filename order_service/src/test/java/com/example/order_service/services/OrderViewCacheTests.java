@@ -0,0 +1,112 @@
+package com.example.order_service.services;
+
+import com.example.order_service.dto.OrderResponseDTO;
+import com.example.order_service.entities.Order;
+import com.example.order_service.entities.OrderProduct;
+import com.example.order_service.repositories.OrderRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderViewCacheTests {
+
+    private static final int READERS = 8;
+
+    private OrderRepository orderRepository;
+    private MeterRegistry meterRegistry;
+    private OrderViewCache orderViewCache;
+    private ExecutorService readers;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = Mockito.mock(OrderRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        orderViewCache = new OrderViewCache(orderRepository, 100, 60, meterRegistry);
+        readers = Executors.newFixedThreadPool(READERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        readers.shutdownNow();
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        when(orderRepository.findWithProductsById(5L)).thenAnswer(invocation -> {
+            loading.await();
+            return Optional.of(newOrder(5L, 2));
+        });
+
+        List<Future<Optional<OrderResponseDTO>>> reads = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            reads.add(readers.submit(() -> orderViewCache.get(5L)));
+        }
+        Thread.sleep(100);
+        loading.countDown();
+
+        for (Future<Optional<OrderResponseDTO>> read : reads) {
+            assertEquals(2, read.get().get().getOrderProducts().get(0).getQuantity());
+        }
+        verify(orderRepository, times(1)).findWithProductsById(5L);
+    }
+
+    @Test
+    void invalidatedOrderIsLoadedAgain() {
+        when(orderRepository.findWithProductsById(5L))
+                .thenReturn(Optional.of(newOrder(5L, 2)))
+                .thenReturn(Optional.of(newOrder(5L, 7)));
+
+        orderViewCache.get(5L);
+        orderViewCache.get(5L);
+        orderViewCache.invalidate(5L);
+
+        assertEquals(7, orderViewCache.get(5L).get().getOrderProducts().get(0).getQuantity());
+        verify(orderRepository, times(2)).findWithProductsById(5L);
+        assertEquals(1.0 / 3, meterRegistry.get("order.view-cache.hit.ratio").gauge().value(), 1e-9);
+    }
+
+    @Test
+    void putServesTheNewOrderWithoutLoading() {
+        orderViewCache.put(newOrder(6L, 3));
+
+        assertEquals(3, orderViewCache.get(6L).get().getOrderProducts().get(0).getQuantity());
+        verify(orderRepository, times(0)).findWithProductsById(6L);
+    }
+
+    @Test
+    void missingOrderIsNotCached() {
+        when(orderRepository.findWithProductsById(9L))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(newOrder(9L, 1)));
+
+        assertFalse(orderViewCache.get(9L).isPresent());
+        assertEquals(9L, orderViewCache.get(9L).get().getId());
+    }
+
+    private static Order newOrder(Long id, int quantity) {
+        Order order = new Order(1L, 2L, "u-c", quantity * 2.5);
+        order.setId(id);
+        List<OrderProduct> orderProducts = new ArrayList<>();
+        orderProducts.add(new OrderProduct(order, 10L, quantity));
+        order.setOrderProducts(orderProducts);
+        return order;
+    }
+}
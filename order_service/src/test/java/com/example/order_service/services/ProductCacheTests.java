@@ -0,0 +1,132 @@
+package com.example.order_service.services;
+
+import com.example.order_service.entities.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductCacheTests {
+
+    @Test
+    void freshProductsAreServedWithoutCallingTheLoader() {
+        ProductCache cache = new ProductCache(100, 60, 600, new SimpleMeterRegistry());
+        RecordingLoader loader = new RecordingLoader(product(1L, 10.0), product(2L, 20.0));
+
+        cache.getAll(Arrays.asList(1L, 2L), loader);
+        Map<Long, Product> products = cache.getAll(Arrays.asList(1L, 2L), loader);
+
+        assertEquals(20.0, products.get(2L).getPrice());
+        assertEquals(1, loader.calls.size());
+    }
+
+    @Test
+    void onlyTheMissingIdsAreLoaded() {
+        ProductCache cache = new ProductCache(100, 60, 600, new SimpleMeterRegistry());
+        RecordingLoader loader = new RecordingLoader(product(1L, 10.0), product(2L, 20.0), product(3L, 30.0));
+
+        cache.getAll(Collections.singletonList(1L), loader);
+        Map<Long, Product> products = cache.getAll(Arrays.asList(1L, 2L, 3L), loader);
+
+        assertEquals(3, products.size());
+        assertEquals(new LinkedHashSet<>(Arrays.asList(2L, 3L)), loader.calls.get(1));
+    }
+
+    @Test
+    void expiredProductsAreHandedToTheLoaderForRevalidation() {
+        // Everything expires at once but is kept for the revalidation window
+        ProductCache cache = new ProductCache(100, 0, 600, new SimpleMeterRegistry());
+        RecordingLoader loader = new RecordingLoader(product(1L, 10.0));
+
+        cache.getAll(Collections.singletonList(1L), loader);
+
+        assertTrue(cache.getAllPresent(Collections.singletonList(1L)).isEmpty());
+        assertEquals(10.0, cache.getAllStale(Collections.singletonList(1L)).get(1L).getPrice());
+        cache.getAll(Collections.singletonList(1L), loader);
+        assertEquals(2, loader.calls.size());
+        assertEquals(Collections.singleton(1L), loader.staleCopies.get(1).keySet());
+    }
+
+    @Test
+    void withoutRevalidationWindowExpiredProductsAreDropped() {
+        ProductCache cache = new ProductCache(100, 0, 0, new SimpleMeterRegistry());
+        RecordingLoader loader = new RecordingLoader(product(1L, 10.0));
+
+        cache.getAll(Collections.singletonList(1L), loader);
+        cache.getAll(Collections.singletonList(1L), loader);
+
+        assertTrue(cache.getAllStale(Collections.singletonList(1L)).isEmpty());
+        assertTrue(loader.staleCopies.get(1).isEmpty());
+    }
+
+    @Test
+    void invalidatedProductsAreLoadedAgain() {
+        ProductCache cache = new ProductCache(100, 60, 600, new SimpleMeterRegistry());
+        RecordingLoader loader = new RecordingLoader(product(1L, 10.0), product(2L, 20.0));
+        cache.getAll(Arrays.asList(1L, 2L), loader);
+
+        cache.invalidate(1L);
+        cache.getAll(Arrays.asList(1L, 2L), loader);
+        cache.invalidateAll();
+        cache.getAll(Arrays.asList(1L, 2L), loader);
+
+        assertEquals(Collections.singleton(1L), loader.calls.get(1));
+        assertEquals(new LinkedHashSet<>(Arrays.asList(1L, 2L)), loader.calls.get(2));
+        // An invalidated product has no stale copy to revalidate
+        assertTrue(loader.staleCopies.get(1).isEmpty());
+    }
+
+    @Test
+    void staleCopiesOfDeletedProductsAreDropped() {
+        ProductCache cache = new ProductCache(100, 0, 600, new SimpleMeterRegistry());
+        cache.getAll(Collections.singletonList(1L), new RecordingLoader(product(1L, 10.0)));
+
+        Map<Long, Product> products = cache.getAll(Collections.singletonList(1L), new RecordingLoader());
+
+        assertTrue(products.isEmpty());
+        assertTrue(cache.getAllStale(Collections.singletonList(1L)).isEmpty());
+    }
+
+    private static Product product(Long id, double price) {
+        Product product = new Product("Product " + id, "Description", price, 1L);
+        product.setId(id);
+        return product;
+    }
+
+    // Returns the products it knows of among the requested ids and records each call
+    private static class RecordingLoader implements BiFunction<Set<Long>, Map<Long, Product>, Map<Long, Product>> {
+        private final Map<Long, Product> products = new HashMap<>();
+        private final List<Set<Long>> calls = new ArrayList<>();
+        private final List<Map<Long, Product>> staleCopies = new ArrayList<>();
+
+        RecordingLoader(Product... products) {
+            for (Product product : products) {
+                this.products.put(product.getId(), product);
+            }
+        }
+
+        @Override
+        public Map<Long, Product> apply(Set<Long> ids, Map<Long, Product> stale) {
+            calls.add(new LinkedHashSet<>(ids));
+            staleCopies.add(new HashMap<>(stale));
+            Map<Long, Product> loaded = new HashMap<>();
+            for (Long id : ids) {
+                if (products.containsKey(id)) {
+                    loaded.put(id, products.get(id));
+                }
+            }
+            return loaded;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.order_service.services;
+
+import com.example.order_service.dto.ProductBatchResponseDTO;
+import com.example.order_service.entities.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductClientTests {
+
+    private RestTemplate restTemplate;
+    private ProductClient productClient;
+    @Captor
+    private ArgumentCaptor<HttpEntity<?>> requests;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        restTemplate = Mockito.mock(RestTemplate.class);
+        // A TTL of zero makes every cached product stale right away, so each lookup revalidates
+        ProductCache productCache = new ProductCache(100, 0, 600, new SimpleMeterRegistry());
+        productClient = new ProductClient(restTemplate, null, productCache,
+                new ConcurrencyLimiters(new SimpleMeterRegistry(), 20, 4, 200), Mockito.mock(HedgedProductLookup.class));
+    }
+
+    @Test
+    void staleProductsAreRevalidatedWithTheirETags() {
+        Product first = product(1L, 3);
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(ProductBatchResponseDTO.class)))
+                .thenReturn(ResponseEntity.ok(response(Arrays.asList(first, product(2L, 3)), Collections.emptyList())))
+                .thenReturn(ResponseEntity.ok(response(Collections.singletonList(product(2L, 4)), Collections.singletonList(1L))));
+
+        productClient.getProducts(Arrays.asList(1L, 2L));
+        Map<Long, Product> products = productClient.getProducts(Arrays.asList(1L, 2L));
+
+        verify(restTemplate, times(2)).exchange(anyString(), eq(HttpMethod.POST), requests.capture(), eq(ProductBatchResponseDTO.class));
+        assertNull(requests.getAllValues().get(0).getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH));
+        List<String> etags = requests.getAllValues().get(1).getHeaders().getIfNoneMatch();
+        assertEquals(2, etags.size());
+        assertTrue(etags.containsAll(Arrays.asList("\"1-3\"", "\"2-3\"")));
+        // The unchanged product is the cached copy, the changed one is the new version
+        assertSame(first, products.get(1L));
+        assertEquals(4, products.get(2L).getVersion());
+    }
+
+    @Test
+    void productDeletedSinceItWasCachedIsReportedMissing() {
+        ProductBatchResponseDTO deleted = response(Collections.emptyList(), Collections.emptyList());
+        deleted.setMissingIds(new ArrayList<>(Collections.singletonList(1L)));
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(ProductBatchResponseDTO.class)))
+                .thenReturn(ResponseEntity.ok(response(Collections.singletonList(product(1L, 3)), Collections.emptyList())))
+                .thenReturn(ResponseEntity.ok(deleted));
+
+        productClient.getProducts(Collections.singletonList(1L));
+
+        assertTrue(productClient.findProducts(Collections.singletonList(1L)).isEmpty());
+    }
+
+    private static ProductBatchResponseDTO response(List<Product> products, List<Long> notModifiedIds) {
+        ProductBatchResponseDTO response = new ProductBatchResponseDTO();
+        response.setProducts(new ArrayList<>(products));
+        response.setNotModifiedIds(new ArrayList<>(notModifiedIds));
+        return response;
+    }
+
+    private static Product product(Long id, long version) {
+        Product product = new Product("p" + id, "d", 2.5, 1L);
+        product.setId(id);
+        product.setVersion(version);
+        return product;
+    }
+}
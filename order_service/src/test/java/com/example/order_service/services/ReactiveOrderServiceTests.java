@@ -0,0 +1,141 @@
+package com.example.order_service.services;
+
+import com.example.order_service.dto.AuthIdentity;
+import com.example.order_service.entities.Order;
+import com.example.order_service.entities.OrderProduct;
+import com.example.order_service.entities.Product;
+import com.example.order_service.repositories.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+class ReactiveOrderServiceTests {
+
+    private static final Duration LOOKUP_DELAY = Duration.ofMillis(300);
+    private static final int IN_FLIGHT_ORDERS = 2000;
+
+    private Scheduler jdbcScheduler;
+    private OrderRepository orderRepository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcScheduler = Schedulers.newBoundedElastic(4, 10_000, "test-jdbc");
+        orderRepository = Mockito.mock(OrderRepository.class);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcScheduler.dispose();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void manyOrdersWaitOnLookupsWithoutHoldingThreads() {
+        ReactiveOrderService orderService = new ReactiveOrderService(orderRepository,
+                new DelayedAuthClient(false), new DelayedProductClient(), jdbcScheduler, 5000);
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        AtomicInteger peakThreads = new AtomicInteger();
+
+        long start = System.nanoTime();
+        List<Order> created = Flux.range(0, IN_FLIGHT_ORDERS)
+                .flatMap(i -> orderService.createOrder(newOrder()), IN_FLIGHT_ORDERS)
+                .doOnNext(order -> peakThreads.accumulateAndGet(ManagementFactory.getThreadMXBean().getThreadCount(), Math::max))
+                .collectList()
+                .block(Duration.ofSeconds(30));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        System.out.println(IN_FLIGHT_ORDERS + " concurrent reactive orders in " + elapsedMs + " ms, threads "
+                + threadsBefore + " -> " + peakThreads.get());
+
+        assertEquals(IN_FLIGHT_ORDERS, created.size());
+        assertEquals("u-c", created.get(0).getType());
+        assertEquals(Order.STATUS_ACCEPTED, created.get(0).getStatus());
+        // Blocking would need one thread per in-flight order; here a handful of scheduler threads serve them all
+        assertTrue(peakThreads.get() - threadsBefore < 50, "threads grew from " + threadsBefore + " to " + peakThreads.get());
+        assertTrue(elapsedMs < 10 * LOOKUP_DELAY.toMillis(), "orders took " + elapsedMs + " ms");
+    }
+
+    @Test
+    void missingCustomerFailsOrder() {
+        ReactiveOrderService orderService = new ReactiveOrderService(orderRepository,
+                new DelayedAuthClient(true), new DelayedProductClient(), jdbcScheduler, 5000);
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> orderService.createOrder(newOrder()).block(Duration.ofSeconds(5)));
+        assertEquals("Owner or customer not found in auth-service", e.getMessage());
+        Mockito.verify(orderRepository, Mockito.never()).save(any(Order.class));
+    }
+
+    @Test
+    void slowLookupsTimeOut() {
+        ReactiveOrderService orderService = new ReactiveOrderService(orderRepository,
+                new DelayedAuthClient(false), new DelayedProductClient(), jdbcScheduler, 50);
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> orderService.createOrder(newOrder()).block(Duration.ofSeconds(5)));
+        assertEquals("Order lookups did not complete within 50 ms", e.getMessage());
+    }
+
+    private static Order newOrder() {
+        Order order = new Order(1L, 2L, null, 0);
+        List<OrderProduct> orderProducts = new ArrayList<>();
+        orderProducts.add(new OrderProduct(order, 10L, 2));
+        orderProducts.add(new OrderProduct(order, 11L, 3));
+        order.setOrderProducts(orderProducts);
+        return order;
+    }
+
+    private static class DelayedAuthClient extends AuthClient {
+        private final boolean customerMissing;
+
+        DelayedAuthClient(boolean customerMissing) {
+            super(null, null, null, null);
+            this.customerMissing = customerMissing;
+        }
+
+        @Override
+        public Mono<AuthIdentity> getIdentityReactive(Long id) {
+            AuthIdentity identity = id == 1L ? AuthIdentity.of("user")
+                    : customerMissing ? AuthIdentity.missing() : AuthIdentity.of("company");
+            return Mono.delay(LOOKUP_DELAY).thenReturn(identity);
+        }
+    }
+
+    private static class DelayedProductClient extends ProductClient {
+        DelayedProductClient() {
+            super(null, null, null, null, null);
+        }
+
+        @Override
+        public Mono<Map<Long, Product>> getProductsReactive(Collection<Long> ids) {
+            Map<Long, Product> products = new HashMap<>();
+            for (Long id : ids) {
+                Product product = new Product("p" + id, "d", id == 10L ? 10.0 : 2.5, 1L);
+                product.setId(id);
+                products.put(id, product);
+            }
+            return Mono.delay(LOOKUP_DELAY).thenReturn(products);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.product_service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Collections;
+
+// Verifies the bearer tokens auth-service issues at /api/auth/login: HS256 JWTs whose subject is the user id and
+// which carry the authType. Checking the signature and expiry needs only the shared secret, so no request leaves
+// this service. A request without a token passes through unauthenticated, one with a bad token gets 401.
+public class AuthTokenFilter extends OncePerRequestFilter {
+    // {"alg":"HS256","typ":"JWT"}, the only header auth-service writes
+    static final String HEADER = "eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9";
+    // The authority of the tokens the services sign for their calls to each other, which carry no user (subject 0)
+    public static final String SERVICE = "service";
+    private static final long SERVICE_ID = 0L;
+    private static final String BEARER = "Bearer ";
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final SecretKeySpec key;
+
+    public AuthTokenFilter(String secret) {
+        if (secret == null || secret.getBytes(StandardCharsets.UTF_8).length < 32) {
+            throw new IllegalArgumentException("auth.token.secret must be at least 32 bytes");
+        }
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.startsWith(BEARER)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        TokenAuthentication authentication = verify(authorization.substring(BEARER.length()).trim());
+        if (authentication == null) {
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+            response.sendError(HttpStatus.UNAUTHORIZED.value());
+            return;
+        }
+        // Cleared again by the security chain once the request completes
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        chain.doFilter(request, response);
+    }
+
+    // The token's identity, or null when it is malformed, forged or expired
+    TokenAuthentication verify(String token) {
+        int firstDot = token.indexOf('.');
+        int lastDot = token.lastIndexOf('.');
+        if (firstDot <= 0 || lastDot == firstDot || !HEADER.equals(token.substring(0, firstDot))) {
+            return null;
+        }
+        try {
+            byte[] signature = Base64.getUrlDecoder().decode(token.substring(lastDot + 1));
+            if (!MessageDigest.isEqual(signature, sign(token.substring(0, lastDot)))) {
+                return null;
+            }
+            JsonNode claims = objectMapper.readTree(Base64.getUrlDecoder().decode(token.substring(firstDot + 1, lastDot)));
+            if (!claims.path("exp").canConvertToLong() || claims.path("exp").asLong() <= System.currentTimeMillis() / 1000) {
+                return null;
+            }
+            long userId = Long.parseLong(claims.path("sub").asText());
+            String authType = claims.path("authType").asText();
+            // A user registered with the service authType gets nothing from it
+            if (SERVICE.equals(authType) != (userId == SERVICE_ID)) {
+                return null;
+            }
+            return new TokenAuthentication(userId, authType);
+        } catch (IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(String content) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac.doFinal(content.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // The caller as vouched for by its token: principal is the user id, the single authority its authType
+    public static class TokenAuthentication extends AbstractAuthenticationToken {
+        private static final long serialVersionUID = 1L;
+        private final Long userId;
+        private final String authType;
+
+        TokenAuthentication(Long userId, String authType) {
+            super(Collections.singletonList(new SimpleGrantedAuthority(authType)));
+            this.userId = userId;
+            this.authType = authType;
+            setAuthenticated(true);
+        }
+
+        @Override
+        public Object getCredentials() {
+            return null;
+        }
+
+        @Override
+        public Long getPrincipal() {
+            return userId;
+        }
+
+        public String getAuthType() {
+            return authType;
+        }
+    }
+}
@@ -1,24 +1,41 @@
 package com.example.product_service;
 
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.client.RestTemplate;
 
-import javax.ws.rs.HttpMethod;
+import org.springframework.http.HttpMethod;
 
 @Configuration
 @EnableWebSecurity
 public class Config extends WebSecurityConfigurerAdapter {
+    // Shared with auth-service, which signs the tokens
+    @Value("${auth.token.secret}")
+    private String tokenSecret;
 
     @Bean
     @LoadBalanced
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(RestTemplateBuilder restTemplateBuilder) {
+        return restTemplateBuilder.build();
+    }
+
+    // Internal callers ask for Smile, Jackson's binary JSON, which drops repeated field names and writes numbers in
+    // binary. It takes the place of MVC's default Smile converter, after the JSON one, so */* still gets JSON, and it
+    // is built from Boot's builder so both formats follow the same spring.jackson settings.
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        return new MappingJackson2SmileHttpMessageConverter(objectMapperBuilder.factory(new SmileFactory()).build());
     }
 
     @Override
@@ -27,10 +44,16 @@ public class Config extends WebSecurityConfigurerAdapter {
                 .authorizeRequests()
                 .antMatchers(HttpMethod.GET, "/api/products/**").permitAll() // Allow GET requests to /api/products/** without authentication
                 .antMatchers(HttpMethod.POST, "/api/products").permitAll() // Allow POST requests to /api/products without authentication
+                .antMatchers(HttpMethod.POST, "/api/products/batch").permitAll() // Allow batch lookups, order-service prices order lines with them
+                .antMatchers(HttpMethod.POST, "/api/products/import").permitAll() // Allow bulk imports, like single creates
                 .antMatchers(HttpMethod.PUT, "/api/products/**").permitAll() // Allow PUT requests to /api/products/**
                 .antMatchers(HttpMethod.DELETE, "/api/products/**").permitAll() // Allow DELETE requests to /api/products/**
+                .antMatchers(HttpMethod.DELETE, "/api/cache/**").hasAuthority(AuthTokenFilter.SERVICE) // Cache invalidation callbacks, only from the other services
+                .antMatchers(HttpMethod.GET, "/actuator/**").permitAll() // Allow reading cache and client metrics
                 .anyRequest().authenticated() // All other endpoints require authentication
                 .and()
-                .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS); // Ensure stateless session management
+                .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS) // Ensure stateless session management
+                .and()
+                .addFilterBefore(new AuthTokenFilter(tokenSecret), UsernamePasswordAuthenticationFilter.class); // Authenticate bearer tokens from auth-service locally
     }
 }
@@ -0,0 +1,68 @@
+package com.example.product_service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Products used to take their ids from an AUTO_INCREMENT column. Their pooled generator now reads the next id from
+// products_seq, which ddl-auto creates starting at 1, so on a database that already has products the first inserts
+// would collide with existing rows. Once the schema is updated and before any request is served, each sequence is
+// moved past the highest id of its table. This is a no-op once a sequence is ahead, so every instance can run it at
+// startup. Only MySQL's one-row sequence tables are seeded, native sequences (H2 in tests) are left alone.
+@Component
+@DependsOn("entityManagerFactory")
+public class IdSequenceSeeder {
+    private static final Logger log = LoggerFactory.getLogger(IdSequenceSeeder.class);
+    private final JdbcTemplate jdbcTemplate;
+    // Sequence table -> table whose ids it hands out
+    private final Map<String, String> sequences = new LinkedHashMap<>();
+    @Autowired
+    public IdSequenceSeeder(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        sequences.put("products_seq", "products");
+    }
+
+    @PostConstruct
+    public void seedAll() {
+        for (Map.Entry<String, String> sequence : sequences.entrySet()) {
+            if (seed(jdbcTemplate, sequence.getKey(), sequence.getValue())) {
+                log.info("Moved {} past the highest id in {}", sequence.getKey(), sequence.getValue());
+            }
+        }
+    }
+
+    // Raises the sequence table's next_val to max(id) + 1 of the table when it is not above it already. Returns
+    // whether it had to.
+    static boolean seed(JdbcTemplate jdbcTemplate, String sequenceTable, String table) {
+        if (!tableExists(jdbcTemplate, sequenceTable)) {
+            return false;
+        }
+        return jdbcTemplate.update("update " + sequenceTable + " set next_val = (select coalesce(max(id), 0) + 1 from " + table
+                + ") where next_val <= (select coalesce(max(id), 0) from " + table + ")") > 0;
+    }
+
+    private static boolean tableExists(JdbcTemplate jdbcTemplate, String name) {
+        Boolean exists = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String candidate : new String[]{name, name.toUpperCase()}) {
+                try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, candidate, new String[]{"TABLE"})) {
+                    if (tables.next()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        });
+        return Boolean.TRUE.equals(exists);
+    }
+}
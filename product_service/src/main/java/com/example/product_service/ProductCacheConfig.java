@@ -0,0 +1,64 @@
+package com.example.product_service;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Hibernate second-level cache backed by in-process Caffeine caches through JCache. Products loaded by id are kept
+// in the "products" region and owner lookups in the query cache. Hibernate evicts a product when it is
+// updated or deleted through JPA, and drops cached query results whenever the products table changes.
+@Configuration
+public class ProductCacheConfig {
+    public static final String PRODUCT_REGION = "products";
+    static final String QUERY_REGION = "default-query-results-region";
+    static final String TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(@Value("${product.cache.max-size:10000}") long maxSize,
+                                              @Value("${product.cache.ttl-seconds:300}") long ttlSeconds,
+                                              @Value("${product.cache.query-max-size:1000}") long queryMaxSize) {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        // A manager of its own, so two application contexts in one JVM do not share regions
+        CacheManager cacheManager = provider.getCacheManager(URI.create("product-service:" + UUID.randomUUID()),
+                getClass().getClassLoader());
+        // Size-bounded regions are evicted by Caffeine's frequency-aware policy, the TTL bounds how long a change
+        // made outside this instance (another instance, or SQL) can go unseen
+        cacheManager.createCache(PRODUCT_REGION, region(maxSize, ttlSeconds));
+        cacheManager.createCache(QUERY_REGION, region(queryMaxSize, ttlSeconds));
+        // Hibernate compares cached query results against these timestamps, they must never be evicted
+        cacheManager.createCache(TIMESTAMPS_REGION, new CaffeineConfiguration<>());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager,
+                                                                    @Value("${product.cache.enabled:true}") boolean enabled) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, enabled);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, enabled);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long maxSize, long ttlSeconds) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
@@ -1,15 +1,33 @@
 package com.example.product_service.controllers;
 
+import com.example.product_service.dto.ProductBatchResponseDTO;
+import com.example.product_service.dto.ProductChangePageDTO;
+import com.example.product_service.dto.ProductImportResultDTO;
+import com.example.product_service.dto.ProductPageResponseDTO;
 import com.example.product_service.entities.Product;
+import com.example.product_service.services.ConcurrencyLimiters;
+import com.example.product_service.services.ETags;
+import com.example.product_service.services.ProductChangeFeed;
+import com.example.product_service.services.IdempotencyStore;
+import com.example.product_service.services.ProductImportService;
 import com.example.product_service.services.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/products")
@@ -17,17 +35,85 @@ public class ProductController {
     @Value("${server.port}")
     private int serverPort;
     private final ProductService productService;
+    private final ConcurrencyLimiters limiters;
+    private final IdempotencyStore idempotencyStore;
+    private final ProductImportService productImportService;
+    private final ProductChangeFeed productChangeFeed;
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ConcurrencyLimiters limiters, IdempotencyStore idempotencyStore,
+                             ProductImportService productImportService, ProductChangeFeed productChangeFeed) {
         System.out.print("the port is "+serverPort);
         this.productService = productService;
+        this.limiters = limiters;
+        this.idempotencyStore = idempotencyStore;
+        this.productImportService = productImportService;
+        this.productChangeFeed = productChangeFeed;
     }
+    // A caller that sends the ETag it has gets 304 from a version check, without the product being loaded or written
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
+    public ResponseEntity<Product> getProductById(@PathVariable Long id,
+                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Optional<Long> version = productService.findVersion(id);
+            if (!version.isPresent()) {
+                return ResponseEntity.notFound().build();
+            }
+            if (ETags.matches(ifNoneMatch, id, version.get())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ETags.of(id, version.get())).build();
+            }
+        }
         Optional<Product> product = productService.findById(id);
-        return product.map(ResponseEntity::ok)
+        return product.map(p -> ResponseEntity.ok().eTag(ETags.of(p.getId(), p.getVersion())).body(p))
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
+    // Full-text search over names and descriptions, the last word of q may be incomplete
+    @GetMapping("/search")
+    public ResponseEntity<List<Product>> searchProducts(@RequestParam String q,
+                                                        @RequestParam(defaultValue = "20") int limit) {
+        if (!productService.isSearchReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "5").build();
+        }
+        return ResponseEntity.ok(productService.search(q, Math.max(1, Math.min(limit, 100))));
+    }
+    // Products priced within [minPrice, maxPrice], sorted by price, -price, createdAt or -createdAt. Pass the
+    // nextCursor of the previous page as cursor to get the next one.
+    @GetMapping("/browse")
+    public ResponseEntity<ProductPageResponseDTO> browseProducts(@RequestParam(required = false) Double minPrice,
+                                                                 @RequestParam(required = false) Double maxPrice,
+                                                                 @RequestParam(defaultValue = "price") String sort,
+                                                                 @RequestParam(required = false) String cursor,
+                                                                 @RequestParam(defaultValue = "20") int limit) {
+        if (!productService.isBrowseReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "5").build();
+        }
+        try {
+            return ResponseEntity.ok(productService.browse(minPrice, maxPrice, sort, cursor, Math.max(1, Math.min(limit, 100))));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    // Change feed for consumers that keep their own copy of products. Pass the nextToken of the previous response
+    // as token; without changes after it the request waits up to waitMs for one. JSON only, the products are
+    // embedded as raw JSON which Smile cannot carry.
+    @GetMapping(value = "/changes", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ProductChangePageDTO> getChanges(@RequestParam(required = false) String token,
+                                                           @RequestParam(defaultValue = "100") int limit,
+                                                           @RequestParam(defaultValue = "0") long waitMs) {
+        try {
+            return productChangeFeed.poll(token, Math.max(1, Math.min(limit, 1000)), waitMs);
+        } catch (IllegalArgumentException e) {
+            DeferredResult<ProductChangePageDTO> result = new DeferredResult<>();
+            result.setErrorResult(ResponseEntity.badRequest().build());
+            return result;
+        }
+    }
+    // If-None-Match may list the ETags of products the caller has cached, those come back in notModifiedIds only
+    @PostMapping("/batch")
+    public ResponseEntity<ProductBatchResponseDTO> getProductsByIds(@RequestBody List<Long> ids,
+                                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return ResponseEntity.ok(productService.findAllByIds(ids, ETags.parse(ifNoneMatch)));
+    }
+
     @GetMapping
     public ResponseEntity<List<Product>> getAllProducts() {
         System.out.print("the port is "+serverPort);
@@ -35,24 +121,67 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    // The owner's newest product, see /owner/{ownerId}/catalog for all of them
     @GetMapping("/owner/{ownerId}")
     public ResponseEntity<Product> getProductByOwner(@PathVariable Long ownerId) {
         Optional<Product> product = productService.getProductByOwner(ownerId);
         return product.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/owner/{ownerId}/catalog")
+    public ResponseEntity<ProductPageResponseDTO> getOwnerCatalog(@PathVariable Long ownerId,
+                                                                  @RequestParam(required = false) String cursor,
+                                                                  @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(productService.getOwnerCatalog(ownerId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // A retry that repeats the Idempotency-Key gets the first attempt's response instead of creating another product
     @PostMapping
-    public ResponseEntity<Product> createProduct(@RequestBody Product product) {
+    public ResponseEntity<Product> createProduct(@RequestBody Product product,
+                                                 @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyStore.execute("POST /api/products", idempotencyKey, product, Product.class, () -> create(product));
+    }
+    private ResponseEntity<Product> create(Product product) {
         try {
             System.out.print("the product want to create is "+product.getPrice() + product.getName()+product.getDescription()+product.getOwnerId());
-            Product createdProduct = productService.createProduct(product);
+            Product createdProduct = limiters.get("create-product").call(() -> productService.createProduct(product));
             return ResponseEntity.status(HttpStatus.CREATED).body(createdProduct);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         } catch (RuntimeException e) {
+            return ResponseEntity.status(failureStatus(e)).body(null);
+        }
+    }
+    // An owner lookup that times out or fails in auth-service is not the client's fault. It gets 504 or 503, which
+    // the idempotency store does not remember, so a retry with the same key runs again.
+    private static HttpStatus failureStatus(RuntimeException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof SocketTimeoutException) {
+                return HttpStatus.GATEWAY_TIMEOUT;
+            }
+            if (cause instanceof IOException || cause instanceof HttpServerErrorException) {
+                return HttpStatus.SERVICE_UNAVAILABLE;
+            }
+        }
+        return HttpStatus.BAD_REQUEST;
+    }
+
+    // Bulk import from a JSON array or NDJSON, read row by row as the body arrives. Only rejected rows are listed.
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<ProductImportResultDTO> importProducts(InputStream body) {
+        try {
+            return ResponseEntity.ok(productImportService.importProducts(body));
+        } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
         }
     }
 
     @PutMapping("/{id}")
+
     public ResponseEntity<Product> updateProduct(@PathVariable Long id, @RequestBody Product product) {
         Product updatedProduct = productService.updateProduct(id, product);
         System.out.print("the port is "+serverPort);
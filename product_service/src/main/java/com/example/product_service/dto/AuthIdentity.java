@@ -0,0 +1,30 @@
+package com.example.product_service.dto;
+
+// The part of an Auth that other services need: whether the id exists and its authType
+public class AuthIdentity {
+    private static final AuthIdentity MISSING = new AuthIdentity(false, null);
+
+    private final boolean exists;
+    private final String authType;
+
+    private AuthIdentity(boolean exists, String authType) {
+        this.exists = exists;
+        this.authType = authType;
+    }
+
+    public static AuthIdentity of(String authType) {
+        return new AuthIdentity(true, authType);
+    }
+
+    public static AuthIdentity missing() {
+        return MISSING;
+    }
+
+    public boolean exists() {
+        return exists;
+    }
+
+    public String getAuthType() {
+        return authType;
+    }
+}
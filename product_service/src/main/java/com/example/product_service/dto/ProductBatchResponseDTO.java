@@ -0,0 +1,47 @@
+package com.example.product_service.dto;
+
+import com.example.product_service.entities.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductBatchResponseDTO {
+    private List<Product> products = new ArrayList<>();
+    private List<Long> missingIds = new ArrayList<>();
+    // Products the caller already has at their current version, listed in If-None-Match
+    private List<Long> notModifiedIds = new ArrayList<>();
+
+    public ProductBatchResponseDTO() {
+    }
+
+    public ProductBatchResponseDTO(List<Product> products, List<Long> missingIds, List<Long> notModifiedIds) {
+        this.products = products;
+        this.missingIds = missingIds;
+        this.notModifiedIds = notModifiedIds;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public void setProducts(List<Product> products) {
+        this.products = products;
+    }
+
+    public List<Long> getMissingIds() {
+        return missingIds;
+    }
+
+    public void setMissingIds(List<Long> missingIds) {
+        this.missingIds = missingIds;
+    }
+
+    public List<Long> getNotModifiedIds() {
+        return notModifiedIds;
+    }
+
+    public void setNotModifiedIds(List<Long> notModifiedIds) {
+        this.notModifiedIds = notModifiedIds;
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.example.product_service.dto;
+
+import com.example.product_service.entities.ProductChangeEvent;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.util.Date;
+
+// One entry of the change feed. product is the product after the change, absent for DELETED.
+public class ProductChangeDTO {
+    private final long sequence;
+    private final Long productId;
+    private final String type;
+    @JsonRawValue
+    private final String product;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, timezone = "UTC")
+    private final Date occurredAt;
+
+    public ProductChangeDTO(long sequence, Long productId, String type, String product, Date occurredAt) {
+        this.sequence = sequence;
+        this.productId = productId;
+        this.type = type;
+        this.product = product;
+        this.occurredAt = occurredAt;
+    }
+
+    public static ProductChangeDTO from(ProductChangeEvent event) {
+        return new ProductChangeDTO(event.getId(), event.getProductId(), event.getType(), event.getPayload(),
+                event.getCreatedAt());
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getProduct() {
+        return product;
+    }
+
+    public Date getOccurredAt() {
+        return occurredAt;
+    }
+}
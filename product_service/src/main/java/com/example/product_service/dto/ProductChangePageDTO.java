@@ -0,0 +1,22 @@
+package com.example.product_service.dto;
+
+import java.util.List;
+
+// Changes in sequence order. nextToken resumes right after the last one, and stays the same when there are none.
+public class ProductChangePageDTO {
+    private final List<ProductChangeDTO> changes;
+    private final String nextToken;
+
+    public ProductChangePageDTO(List<ProductChangeDTO> changes, String nextToken) {
+        this.changes = changes;
+        this.nextToken = nextToken;
+    }
+
+    public List<ProductChangeDTO> getChanges() {
+        return changes;
+    }
+
+    public String getNextToken() {
+        return nextToken;
+    }
+}
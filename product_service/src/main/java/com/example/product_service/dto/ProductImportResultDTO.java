@@ -0,0 +1,54 @@
+package com.example.product_service.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Outcome of an import: counts, and one entry per row that was not imported
+public class ProductImportResultDTO {
+    private int received;
+    private int created;
+    private final List<RowError> errors = new ArrayList<>();
+
+    public void received() {
+        received++;
+    }
+
+    public void created(int count) {
+        created += count;
+    }
+
+    public void error(int row, String error) {
+        errors.add(new RowError(row, error));
+    }
+
+    public int getReceived() {
+        return received;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public static class RowError {
+        // Position of the row in the submitted array or stream, from 0
+        private final int row;
+        private final String error;
+
+        RowError(int row, String error) {
+            this.row = row;
+            this.error = error;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.product_service.dto;
+
+import com.example.product_service.entities.Product;
+
+import java.util.List;
+
+public class ProductPageResponseDTO {
+    private final List<Product> products;
+    // Opaque token to pass as the cursor of the next request, null on the last page
+    private final String nextCursor;
+
+    public ProductPageResponseDTO(List<Product> products, String nextCursor) {
+        this.products = products;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -1,16 +1,33 @@
 package com.example.product_service.entities;
 
+import com.example.product_service.ProductCacheConfig;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import java.util.Date;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        // Keyset pagination of an owner's catalog seeks on (owner, created_at, id)
+        @Index(name = "idx_products_owner_created", columnList = "ownerId, created_at, id")
+})
+// Reads by id are served from the second-level cache, writes through JPA keep it consistent
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = ProductCacheConfig.PRODUCT_REGION)
 public class Product {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled ids are handed out 50 at a time, which lets Hibernate batch the inserts of an import
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_id")
+    @GenericGenerator(name = "products_id", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "products_seq"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     private Long id;
     @Column(nullable = false)
     private String name;
@@ -25,6 +42,9 @@ public class Product {
     @Temporal(TemporalType.TIMESTAMP)
     @Column(name = "created_at", nullable = false, updatable = false)
     private Date createdAt;
+    // Incremented on every update, it is the ETag of the product
+    @Version
+    private long version;
 
     // Constructors, getters, and setters
 
@@ -87,4 +107,13 @@ public class Product {
     public void setCreatedAt(Date createdAt) {
         this.createdAt = createdAt;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
 }
@@ -0,0 +1,76 @@
+package com.example.product_service.entities;
+
+import javax.persistence.*;
+import java.util.Date;
+
+// Outbox row written in the same transaction as the product change it describes. The id is the sequence number
+// of the change feed; it comes from auto-increment so it grows across every product_service instance.
+@Entity
+@Table(name = "product_outbox", indexes = {
+        // Compaction looks for a later event of the same product
+        @Index(name = "idx_product_outbox_product", columnList = "product_id, id"),
+        @Index(name = "idx_product_outbox_created", columnList = "created_at")
+})
+public class ProductChangeEvent {
+    public static final String CREATED = "CREATED";
+    public static final String UPDATED = "UPDATED";
+    public static final String DELETED = "DELETED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+    @Column(name = "type", nullable = false, length = 16)
+    private String type;
+    // The product as JSON after the change, null for DELETED
+    @Lob
+    @Column(name = "payload")
+    private String payload;
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "created_at", nullable = false)
+    private Date createdAt;
+
+    public ProductChangeEvent() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.product_service.repositories;
+
+import com.example.product_service.entities.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyRecord r where r.createdAt < :createdAt")
+    int deleteOlderThan(@Param("createdAt") Date createdAt);
+}
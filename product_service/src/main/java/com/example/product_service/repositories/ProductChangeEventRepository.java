@@ -0,0 +1,39 @@
+package com.example.product_service.repositories;
+
+import com.example.product_service.entities.ProductChangeEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface ProductChangeEventRepository extends JpaRepository<ProductChangeEvent, Long> {
+    List<ProductChangeEvent> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("select min(e.id) from ProductChangeEvent e where e.createdAt >= :createdAt")
+    Long findFirstIdCreatedSince(@Param("createdAt") Date createdAt);
+
+    @Query("select max(e.id) from ProductChangeEvent e")
+    Long findLastId();
+
+    // Events that a later event of the same product makes redundant for a consumer that replays the feed
+    @Query("select e.id from ProductChangeEvent e where e.createdAt < :createdAt and exists "
+            + "(select n.id from ProductChangeEvent n where n.productId = e.productId and n.id > e.id)")
+    List<Long> findSupersededIds(@Param("createdAt") Date createdAt, Pageable pageable);
+
+    @Query("select e.id from ProductChangeEvent e where e.type = :type and e.createdAt < :createdAt")
+    List<Long> findIdsByTypeOlderThan(@Param("type") String type, @Param("createdAt") Date createdAt, Pageable pageable);
+
+    // MySQL cannot delete from a table that the same statement selects from, so ids are selected first
+    @Modifying
+    @Transactional
+    @Query("delete from ProductChangeEvent e where e.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
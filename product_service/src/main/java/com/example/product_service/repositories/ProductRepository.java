@@ -1,13 +1,46 @@
 package com.example.product_service.repositories;
 
 import com.example.product_service.entities.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
-    Optional<Product> findByOwnerId(Long ownerId);
+    // The owner's newest product. Results are kept in the query cache until the products table changes.
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+    Optional<Product> findFirstByOwnerIdOrderByCreatedAtDescIdDesc(Long ownerId);
     Optional<Product> findById(Long id);
+
+    // Version only, for answering If-None-Match without loading the product. Cached like the owner lookup.
+    @Query("select p.version from Product p where p.id = :id")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    // Pairs of id and version
+    @Query("select p.id, p.version from Product p where p.id in :ids")
+    List<Object[]> findVersionsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Keyset batches in id order, for reading the whole catalog without holding it in memory at once
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    // Keyset pages of an owner's catalog, newest first. The next page starts strictly after the (createdAt, id) of
+    // the last row of the previous one, so deep pages cost the same as the first.
+    @Query("select p from Product p where p.ownerId = :ownerId order by p.createdAt desc, p.id desc")
+    List<Product> findOwnerCatalog(@Param("ownerId") Long ownerId, Pageable pageable);
+
+    @Query("select p from Product p where p.ownerId = :ownerId "
+            + "and (p.createdAt < :createdAt or (p.createdAt = :createdAt and p.id < :id)) "
+            + "order by p.createdAt desc, p.id desc")
+    List<Product> findOwnerCatalogAfter(@Param("ownerId") Long ownerId, @Param("createdAt") Date createdAt,
+                                        @Param("id") Long id, Pageable pageable);
 }
@@ -0,0 +1,54 @@
+package com.example.product_service.services;
+
+import com.example.product_service.AuthTokenFilter;
+import com.example.product_service.dto.AuthIdentity;
+import com.example.product_service.entities.Auth;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+@Service
+public class AuthClient {
+    private final RestTemplate restTemplate;
+    private final IdentityCache identityCache;
+    private final ConcurrencyLimiters limiters;
+    @Autowired
+    public AuthClient(RestTemplate restTemplate, IdentityCache identityCache, ConcurrencyLimiters limiters) {
+        this.restTemplate = restTemplate;
+        this.identityCache = identityCache;
+        this.limiters = limiters;
+    }
+
+    public AuthIdentity getIdentity(Long id) {
+        AuthIdentity caller = callerIdentity(id);
+        return caller != null ? caller : identityCache.get(id, this::fetchIdentity);
+    }
+
+    // The caller's own identity comes with its verified token, only other ids need auth-service
+    private static AuthIdentity callerIdentity(Long id) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication instanceof AuthTokenFilter.TokenAuthentication && authentication.getPrincipal().equals(id)) {
+            return AuthIdentity.of(((AuthTokenFilter.TokenAuthentication) authentication).getAuthType());
+        }
+        return null;
+    }
+
+    private AuthIdentity fetchIdentity(Long id) {
+        String authUrl = "http://product-service/authService/api/auth/" + id;
+        return limiters.get("auth-service").call(() -> {
+            try {
+                ResponseEntity<Auth> authResponse = restTemplate.getForEntity(authUrl, Auth.class);
+                if (authResponse.getStatusCode().is2xxSuccessful() && authResponse.getBody() != null) {
+                    return AuthIdentity.of(authResponse.getBody().getAuthType());
+                }
+                return AuthIdentity.missing();
+            } catch (HttpClientErrorException.NotFound e) {
+                return AuthIdentity.missing();
+            }
+        });
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.product_service.services;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Strong ETags of versioned entities, "<id>-<version>", in the same format in every service. The id is part of
+// the tag so that one If-None-Match list can describe several products, as on POST /api/products/batch.
+public final class ETags {
+    private ETags() {
+    }
+
+    public static String of(Long id, long version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    // Versions by id from an If-None-Match header, weak tags and tags in another format are ignored
+    public static Map<Long, Long> parse(String header) {
+        Map<Long, Long> versions = new HashMap<>();
+        if (header == null) {
+            return versions;
+        }
+        for (String tag : header.split(",")) {
+            tag = tag.trim();
+            int dash = tag.indexOf('-');
+            if (tag.length() < 5 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"' || dash < 0) {
+                continue;
+            }
+            try {
+                versions.put(Long.parseLong(tag.substring(1, dash)), Long.parseLong(tag.substring(dash + 1, tag.length() - 1)));
+            } catch (NumberFormatException e) {
+                // Not one of ours
+            }
+        }
+        return versions;
+    }
+
+    public static boolean matches(String ifNoneMatch, Long id, long version) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        if ("*".equals(ifNoneMatch.trim())) {
+            return true;
+        }
+        Long known = parse(ifNoneMatch).get(id);
+        return known != null && known == version;
+    }
+}
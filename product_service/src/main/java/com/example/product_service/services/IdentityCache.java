@@ -0,0 +1,78 @@
+package com.example.product_service.services;
+
+import com.example.product_service.dto.AuthIdentity;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+@Component
+public class IdentityCache {
+    private final AsyncCache<Long, AuthIdentity> cache;
+    @Autowired
+    public IdentityCache(@Value("${auth.identity-cache.max-size:50000}") long maxSize,
+                         @Value("${auth.identity-cache.ttl-seconds:300}") long ttlSeconds,
+                         @Value("${auth.identity-cache.negative-ttl-seconds:10}") long negativeTtlSeconds,
+                         MeterRegistry meterRegistry) {
+        long ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        long negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                // Unknown ids are only remembered briefly so a freshly registered user is picked up quickly
+                .expireAfter(new Expiry<Long, AuthIdentity>() {
+                    @Override
+                    public long expireAfterCreate(Long id, AuthIdentity identity, long currentTime) {
+                        return identity.exists() ? ttlNanos : negativeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long id, AuthIdentity identity, long currentTime, long currentDuration) {
+                        return identity.exists() ? ttlNanos : negativeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long id, AuthIdentity identity, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .executor(Runnable::run)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "auth.identity-cache");
+    }
+
+    public AuthIdentity get(Long id, Function<Long, AuthIdentity> loader) {
+        CompletableFuture<AuthIdentity> loading = new CompletableFuture<>();
+        CompletableFuture<AuthIdentity> identity = cache.get(id, (key, executor) -> loading);
+        if (identity == loading) {
+            // This caller missed first and performs the lookup, concurrent misses for the same id wait on it.
+            // A failed lookup is not cached so the next caller retries.
+            try {
+                loading.complete(loader.apply(id));
+            } catch (RuntimeException e) {
+                loading.completeExceptionally(e);
+            }
+        }
+        try {
+            return identity.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public void invalidate(Long id) {
+        cache.synchronous().invalidate(id);
+    }
+}
@@ -0,0 +1,467 @@
+package com.example.product_service.services;
+
+import com.example.product_service.entities.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory sorted index for browsing the catalog by price range, ordered by price or by creation time. Products
+// are kept in two sorted orders, (price, id) and (createdAt, id), each as parallel primitive arrays, so a million
+// products cost a few tens of megabytes and no objects per product. A page seeks to its cursor with a binary search
+// and reads forward from there, earlier pages are never scanned again.
+@Component
+public class ProductBrowseIndex {
+    public static final String SORT_PRICE = "price";
+    public static final String SORT_PRICE_DESC = "-price";
+    public static final String SORT_CREATED = "createdAt";
+    public static final String SORT_CREATED_DESC = "-createdAt";
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Keys keys = new Keys();
+    // (price, id) order
+    private double[] prices = new double[1024];
+    private long[] priceIds = new long[1024];
+    // (createdAt, id) order, with each product's price for filtering
+    private long[] created = new long[1024];
+    private long[] createdIds = new long[1024];
+    private double[] createdPrices = new double[1024];
+    private int size;
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Called once the initial load from the database has indexed every product
+    public void markReady() {
+        ready = true;
+    }
+
+    public void index(Product product) {
+        indexAll(Collections.singletonList(product));
+    }
+
+    // Adds or replaces the products. The batch is sorted and merged into both orders in one pass each.
+    public void indexAll(Collection<Product> products) {
+        int count = products.size();
+        double[] batchPrices = new double[count];
+        long[] batchIds = new long[count];
+        long[] batchCreated = new long[count];
+        int n = 0;
+        for (Product product : products) {
+            batchPrices[n] = product.getPrice() == null ? 0 : product.getPrice();
+            batchIds[n] = product.getId();
+            batchCreated[n] = product.getCreatedAt() == null ? 0 : product.getCreatedAt().getTime();
+            n++;
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                delete(batchIds[i]);
+            }
+            ensureCapacity(size + count);
+            mergeByPrice(batchPrices, batchIds);
+            mergeByCreated(batchPrices, batchIds, batchCreated);
+            for (int i = 0; i < count; i++) {
+                keys.put(batchIds[i], batchPrices[i], batchCreated[i]);
+            }
+            size += count;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            delete(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ids of one page of the products priced within [minPrice, maxPrice], either bound may be null
+    public Page browse(Double minPrice, Double maxPrice, String sort, String cursor, int limit) {
+        double min = minPrice == null ? Double.NEGATIVE_INFINITY : minPrice;
+        double max = maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice;
+        boolean byPrice = SORT_PRICE.equals(sort) || SORT_PRICE_DESC.equals(sort);
+        boolean descending = SORT_PRICE_DESC.equals(sort) || SORT_CREATED_DESC.equals(sort);
+        if (!byPrice && !SORT_CREATED.equals(sort) && !SORT_CREATED_DESC.equals(sort)) {
+            throw new IllegalArgumentException("Invalid sort: " + sort);
+        }
+        Cursor after = cursor == null ? null : Cursor.parse(cursor, byPrice);
+        lock.readLock().lock();
+        try {
+            // Positions [lo, hi) of the (price, id) order are in the range
+            int lo = priceAfter(min, Long.MIN_VALUE);
+            int hi = priceAfter(max, Long.MAX_VALUE);
+            if (lo >= hi || limit <= 0) {
+                return new Page(Collections.emptyList(), null);
+            }
+            if (byPrice) {
+                return browseByPrice(lo, hi, descending, after, limit);
+            }
+            // A createdAt page either picks from the n products in the range, or scans the createdAt order and
+            // expects to read limit * size / n products to find limit matches. Picking wins when n * n is smaller.
+            long inRange = hi - lo;
+            if (inRange * inRange < (long) limit * size) {
+                return pickByCreated(lo, hi, descending, after, limit);
+            }
+            return scanByCreated(min, max, descending, after, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Page browseByPrice(int lo, int hi, boolean descending, Cursor after, int limit) {
+        List<Long> ids = new ArrayList<>(limit);
+        int last = -1;
+        if (!descending) {
+            int start = after == null ? lo : Math.max(lo, priceAfter(after.price, after.id));
+            for (int p = start; p < hi && ids.size() < limit; p++) {
+                ids.add(priceIds[p]);
+                last = p;
+            }
+        } else {
+            // Ids are whole numbers, so the first position at or after (price, id) is the first one after id - 1
+            int start = after == null ? hi - 1 : Math.min(hi - 1, priceAfter(after.price, after.id - 1) - 1);
+            for (int p = start; p >= lo && ids.size() < limit; p--) {
+                ids.add(priceIds[p]);
+                last = p;
+            }
+        }
+        String nextCursor = ids.size() == limit ? Cursor.of(prices[last], priceIds[last]) : null;
+        return new Page(ids, nextCursor);
+    }
+
+    // Walks the (createdAt, id) order from the cursor and keeps the products within the price range
+    private Page scanByCreated(double min, double max, boolean descending, Cursor after, int limit) {
+        List<Long> ids = new ArrayList<>(limit);
+        int last = -1;
+        int step = descending ? -1 : 1;
+        int start;
+        if (!descending) {
+            start = after == null ? 0 : createdAfter(after.createdAt, after.id);
+        } else {
+            start = after == null ? size - 1 : createdAfter(after.createdAt, after.id - 1) - 1;
+        }
+        for (int p = start; p >= 0 && p < size && ids.size() < limit; p += step) {
+            if (createdPrices[p] >= min && createdPrices[p] <= max) {
+                ids.add(createdIds[p]);
+                last = p;
+            }
+        }
+        String nextCursor = ids.size() == limit ? Cursor.of(created[last], createdIds[last]) : null;
+        return new Page(ids, nextCursor);
+    }
+
+    // Picks the first products by (createdAt, id) past the cursor among the few in the price range, keeping the
+    // best ones seen so far in small sorted arrays
+    private Page pickByCreated(int lo, int hi, boolean descending, Cursor after, int limit) {
+        long[] topCreated = new long[limit];
+        long[] topIds = new long[limit];
+        int count = 0;
+        for (int p = lo; p < hi; p++) {
+            long id = priceIds[p];
+            long createdAt = keys.createdAt(id);
+            if (after != null && !comesAfter(createdAt, id, after.createdAt, after.id, descending)) {
+                continue;
+            }
+            if (count == limit && !comesAfter(topCreated[count - 1], topIds[count - 1], createdAt, id, descending)) {
+                continue;
+            }
+            int position = count == limit ? count - 1 : count++;
+            while (position > 0 && comesAfter(topCreated[position - 1], topIds[position - 1], createdAt, id, descending)) {
+                topCreated[position] = topCreated[position - 1];
+                topIds[position] = topIds[position - 1];
+                position--;
+            }
+            topCreated[position] = createdAt;
+            topIds[position] = id;
+        }
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(topIds[i]);
+        }
+        String nextCursor = count == limit ? Cursor.of(topCreated[count - 1], topIds[count - 1]) : null;
+        return new Page(ids, nextCursor);
+    }
+
+    // Whether (createdAt, id) comes after (otherCreatedAt, otherId) in the page order
+    private static boolean comesAfter(long createdAt, long id, long otherCreatedAt, long otherId, boolean descending) {
+        int compared = createdAt != otherCreatedAt ? Long.compare(createdAt, otherCreatedAt) : Long.compare(id, otherId);
+        return descending ? compared < 0 : compared > 0;
+    }
+
+    // First position of the (price, id) order whose key is greater than (price, id)
+    private int priceAfter(double price, long id) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int compared = Double.compare(prices[mid], price);
+            if (compared < 0 || (compared == 0 && priceIds[mid] <= id)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // First position of the (createdAt, id) order whose key is greater than (createdAt, id)
+    private int createdAfter(long createdAt, long id) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (created[mid] < createdAt || (created[mid] == createdAt && createdIds[mid] <= id)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void delete(long productId) {
+        int slot = keys.find(productId);
+        if (slot < 0) {
+            return;
+        }
+        double price = keys.prices[slot];
+        long createdAt = keys.created[slot];
+        keys.remove(productId);
+        int p = priceAfter(price, productId) - 1;
+        System.arraycopy(prices, p + 1, prices, p, size - p - 1);
+        System.arraycopy(priceIds, p + 1, priceIds, p, size - p - 1);
+        int c = createdAfter(createdAt, productId) - 1;
+        System.arraycopy(created, c + 1, created, c, size - c - 1);
+        System.arraycopy(createdIds, c + 1, createdIds, c, size - c - 1);
+        System.arraycopy(createdPrices, c + 1, createdPrices, c, size - c - 1);
+        size--;
+    }
+
+    // Merges from the back, so only the entries that sort after the batch's first one move
+    private void mergeByPrice(double[] batchPrices, long[] batchIds) {
+        Integer[] order = sortedOrder(batchIds.length, (x, y) -> {
+            int compared = Double.compare(batchPrices[x], batchPrices[y]);
+            return compared != 0 ? compared : Long.compare(batchIds[x], batchIds[y]);
+        });
+        int i = size - 1;
+        int w = size + order.length - 1;
+        for (int j = order.length - 1; j >= 0; w--) {
+            double price = batchPrices[order[j]];
+            long id = batchIds[order[j]];
+            int compared = i >= 0 ? Double.compare(prices[i], price) : -1;
+            if (compared > 0 || (compared == 0 && priceIds[i] > id)) {
+                prices[w] = prices[i];
+                priceIds[w] = priceIds[i--];
+            } else {
+                prices[w] = price;
+                priceIds[w] = id;
+                j--;
+            }
+        }
+    }
+
+    private void mergeByCreated(double[] batchPrices, long[] batchIds, long[] batchCreated) {
+        Integer[] order = sortedOrder(batchIds.length, (x, y) -> batchCreated[x] != batchCreated[y]
+                ? Long.compare(batchCreated[x], batchCreated[y]) : Long.compare(batchIds[x], batchIds[y]));
+        int i = size - 1;
+        int w = size + order.length - 1;
+        for (int j = order.length - 1; j >= 0; w--) {
+            long createdAt = batchCreated[order[j]];
+            long id = batchIds[order[j]];
+            if (i >= 0 && (created[i] > createdAt || (created[i] == createdAt && createdIds[i] > id))) {
+                created[w] = created[i];
+                createdIds[w] = createdIds[i];
+                createdPrices[w] = createdPrices[i--];
+            } else {
+                created[w] = createdAt;
+                createdIds[w] = id;
+                createdPrices[w] = batchPrices[order[j]];
+                j--;
+            }
+        }
+    }
+
+    private static Integer[] sortedOrder(int length, Comparator<Integer> comparator) {
+        Integer[] order = new Integer[length];
+        for (int i = 0; i < length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, comparator);
+        return order;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= prices.length) {
+            return;
+        }
+        int grown = Math.max(capacity, prices.length + (prices.length >> 1));
+        prices = Arrays.copyOf(prices, grown);
+        priceIds = Arrays.copyOf(priceIds, grown);
+        created = Arrays.copyOf(created, grown);
+        createdIds = Arrays.copyOf(createdIds, grown);
+        createdPrices = Arrays.copyOf(createdPrices, grown);
+    }
+
+    public static class Page {
+        private final List<Long> ids;
+        // Null on the last page
+        private final String nextCursor;
+
+        Page(List<Long> ids, String nextCursor) {
+            this.ids = ids;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<Long> getIds() {
+            return ids;
+        }
+
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+
+    // Cursors have the form <price>_<product id> or <createdAt epoch millis>_<product id>, depending on the sort
+    private static class Cursor {
+        private final double price;
+        private final long createdAt;
+        private final long id;
+
+        private Cursor(double price, long createdAt, long id) {
+            this.price = price;
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+
+        static String of(double price, long id) {
+            return price + "_" + id;
+        }
+
+        static String of(long createdAt, long id) {
+            return createdAt + "_" + id;
+        }
+
+        static Cursor parse(String cursor, boolean byPrice) {
+            try {
+                int separator = cursor.lastIndexOf('_');
+                String key = cursor.substring(0, separator);
+                long id = Long.parseLong(cursor.substring(separator + 1));
+                return byPrice ? new Cursor(Double.parseDouble(key), 0, id) : new Cursor(0, Long.parseLong(key), id);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+    }
+
+    // Open addressing map from product id to the price and createdAt the product is indexed under, in primitive
+    // arrays like the orders themselves. Deletion shifts the following entries back instead of leaving tombstones.
+    private static class Keys {
+        private static final long FREE = Long.MIN_VALUE;
+
+        private long[] ids;
+        private double[] prices;
+        private long[] created;
+        private int mask;
+        private int count;
+
+        Keys() {
+            allocate(1024);
+        }
+
+        int find(long id) {
+            for (int slot = home(id); ; slot = (slot + 1) & mask) {
+                if (ids[slot] == id) {
+                    return slot;
+                }
+                if (ids[slot] == FREE) {
+                    return -1;
+                }
+            }
+        }
+
+        long createdAt(long id) {
+            return created[find(id)];
+        }
+
+        // The id must not be present
+        void put(long id, double price, long createdAt) {
+            if ((count + 1) * 2 > ids.length) {
+                long[] oldIds = ids;
+                double[] oldPrices = prices;
+                long[] oldCreated = created;
+                allocate(ids.length * 2);
+                for (int slot = 0; slot < oldIds.length; slot++) {
+                    if (oldIds[slot] != FREE) {
+                        insert(oldIds[slot], oldPrices[slot], oldCreated[slot]);
+                    }
+                }
+            }
+            insert(id, price, createdAt);
+            count++;
+        }
+
+        void remove(long id) {
+            int hole = find(id);
+            if (hole < 0) {
+                return;
+            }
+            for (int slot = (hole + 1) & mask; ids[slot] != FREE; slot = (slot + 1) & mask) {
+                int home = home(ids[slot]);
+                // An entry moves into the hole unless its home lies cyclically within (hole, slot]
+                boolean stays = hole <= slot ? (hole < home && home <= slot) : (hole < home || home <= slot);
+                if (!stays) {
+                    ids[hole] = ids[slot];
+                    prices[hole] = prices[slot];
+                    created[hole] = created[slot];
+                    hole = slot;
+                }
+            }
+            ids[hole] = FREE;
+            count--;
+        }
+
+        private void insert(long id, double price, long createdAt) {
+            int slot = home(id);
+            while (ids[slot] != FREE) {
+                slot = (slot + 1) & mask;
+            }
+            ids[slot] = id;
+            prices[slot] = price;
+            created[slot] = createdAt;
+        }
+
+        private void allocate(int capacity) {
+            ids = new long[capacity];
+            Arrays.fill(ids, FREE);
+            prices = new double[capacity];
+            created = new long[capacity];
+            mask = capacity - 1;
+        }
+
+        private int home(long id) {
+            long hash = id * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.product_service.services;
+
+import com.example.product_service.dto.ProductChangeDTO;
+import com.example.product_service.dto.ProductChangePageDTO;
+import com.example.product_service.entities.ProductChangeEvent;
+import com.example.product_service.repositories.ProductChangeEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+// Reads the product outbox as a feed ordered by sequence number. A resume token is the sequence of the last change
+// a consumer has seen. Long polls that find nothing wait without holding a request thread, and are checked again
+// every poll interval, which also picks up changes committed by other product_service instances.
+//
+// Sequence numbers are taken at insert time, so a transaction can commit after one with a higher number. Changes
+// younger than the settle delay are therefore not served yet, and a page stops at the first of them, so a consumer
+// never moves past a change that could still appear below its token.
+@Component
+public class ProductChangeFeed {
+    private final ProductChangeEventRepository repository;
+    private final long settleMs;
+    private final long maxWaitMs;
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final Counter delivered;
+    private final Timer lag;
+    @Autowired
+    public ProductChangeFeed(ProductChangeEventRepository repository, MeterRegistry meterRegistry,
+                             @Value("${product.change-feed.settle-ms:1000}") long settleMs,
+                             @Value("${product.change-feed.max-wait-ms:30000}") long maxWaitMs) {
+        this.repository = repository;
+        this.settleMs = settleMs;
+        this.maxWaitMs = maxWaitMs;
+        this.delivered = Counter.builder("product.change-feed.delivered").register(meterRegistry);
+        // Time from the change to its delivery to a consumer
+        this.lag = Timer.builder("product.change-feed.lag")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("product.change-feed.waiting", waiters, Queue::size).register(meterRegistry);
+    }
+
+    // A null token starts at the oldest change still kept
+    public ProductChangePageDTO read(String token, int limit) {
+        return read(parseToken(token), limit);
+    }
+
+    // Answers right away when there are changes after the token, otherwise once there are or when waitMs is over
+    public DeferredResult<ProductChangePageDTO> poll(String token, int limit, long waitMs) {
+        long after = parseToken(token);
+        ProductChangePageDTO page = read(after, limit);
+        long wait = Math.max(0, Math.min(waitMs, maxWaitMs));
+        DeferredResult<ProductChangePageDTO> result = new DeferredResult<>(wait, page);
+        if (!page.getChanges().isEmpty() || wait == 0) {
+            result.setResult(page);
+            return result;
+        }
+        Waiter waiter = new Waiter(after, limit, result);
+        waiters.add(waiter);
+        result.onCompletion(() -> waiters.remove(waiter));
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${product.change-feed.poll-ms:200}")
+    public void wakeWaiters() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        // Consumers that are caught up share a token, so one check answers all of them
+        Map<Long, Boolean> hasChanges = new HashMap<>();
+        for (Waiter waiter : waiters) {
+            if (waiter.result.isSetOrExpired()) {
+                continue;
+            }
+            if (hasChanges.computeIfAbsent(waiter.after, after -> !visible(after, 1).isEmpty())) {
+                waiter.result.setResult(read(waiter.after, waiter.limit));
+            }
+        }
+    }
+
+    private ProductChangePageDTO read(long after, int limit) {
+        List<ProductChangeEvent> events = visible(after, limit);
+        if (events.isEmpty()) {
+            return new ProductChangePageDTO(Collections.emptyList(), Long.toString(after));
+        }
+        long now = System.currentTimeMillis();
+        List<ProductChangeDTO> changes = new ArrayList<>();
+        for (ProductChangeEvent event : events) {
+            changes.add(ProductChangeDTO.from(event));
+            lag.record(now - event.getCreatedAt().getTime(), TimeUnit.MILLISECONDS);
+        }
+        delivered.increment(changes.size());
+        return new ProductChangePageDTO(changes, Long.toString(events.get(events.size() - 1).getId()));
+    }
+
+    // Sequence that every settled change is at or below, reading from it later misses none of the changes that
+    // were not settled yet
+    long settledSequence() {
+        Long firstUnsettled = repository.findFirstIdCreatedSince(new Date(System.currentTimeMillis() - settleMs));
+        if (firstUnsettled != null) {
+            return firstUnsettled - 1;
+        }
+        Long last = repository.findLastId();
+        return last == null ? 0 : last;
+    }
+
+    // Changes after the sequence, up to the first one that is not settled yet
+    List<ProductChangeEvent> visible(long after, int limit) {
+        long settledBefore = System.currentTimeMillis() - settleMs;
+        List<ProductChangeEvent> events = repository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, limit));
+        for (int i = 0; i < events.size(); i++) {
+            if (events.get(i).getCreatedAt().getTime() > settledBefore) {
+                return events.subList(0, i);
+            }
+        }
+        return events;
+    }
+
+    private static long parseToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return 0;
+        }
+        try {
+            long after = Long.parseLong(token);
+            if (after < 0) {
+                throw new IllegalArgumentException("Invalid token: " + token);
+            }
+            return after;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid token: " + token);
+        }
+    }
+
+    private static class Waiter {
+        private final long after;
+        private final int limit;
+        private final DeferredResult<ProductChangePageDTO> result;
+
+        Waiter(long after, int limit, DeferredResult<ProductChangePageDTO> result) {
+            this.after = after;
+            this.limit = limit;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.product_service.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class ProductChangeNotifier {
+    private static final Logger log = LoggerFactory.getLogger(ProductChangeNotifier.class);
+    private final RestTemplate restTemplate;
+    private final AuthTokenIssuer tokenIssuer;
+    private final List<String> listenerUrls;
+    // Notifications are sent off the request thread; if the queue fills up they are dropped
+    // and the listeners fall back on their cache TTL
+    private final ThreadPoolExecutor notifyExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1000), runnable -> {
+                Thread thread = new Thread(runnable, "product-change-notifier");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+    @Autowired
+    public ProductChangeNotifier(RestTemplate restTemplate, AuthTokenIssuer tokenIssuer,
+                                 @Value("${product.change-listeners:}") List<String> listenerUrls) {
+        this.restTemplate = restTemplate;
+        this.tokenIssuer = tokenIssuer;
+        this.listenerUrls = listenerUrls;
+    }
+
+    public void productChanged(Long productId) {
+        for (String listenerUrl : listenerUrls) {
+            notifyExecutor.execute(() -> {
+                try {
+                    // The listeners only take invalidations that carry a service token
+                    HttpHeaders headers = new HttpHeaders();
+                    headers.setBearerAuth(tokenIssuer.issueServiceToken());
+                    restTemplate.exchange(listenerUrl + productId, HttpMethod.DELETE, new HttpEntity<>(headers), Void.class);
+                } catch (RestClientException e) {
+                    log.warn("Error notifying {} of product {}: {}", listenerUrl, productId, e.getMessage());
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        notifyExecutor.shutdown();
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.product_service.services;
+
+import com.example.product_service.dto.ProductImportResultDTO;
+import com.example.product_service.entities.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Imports a catalog from a JSON array or an NDJSON stream. Rows are read one at a time, every distinct owner is
+// checked against auth-service once, and valid rows are inserted in JDBC batches with one commit per chunk.
+@Service
+public class ProductImportService {
+    private static final Logger log = LoggerFactory.getLogger(ProductImportService.class);
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final AuthClient authClient;
+    private final ProductSearchIndex searchIndex;
+    private final ProductOutbox productOutbox;
+    private final ProductBrowseIndex browseIndex;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int chunkSize;
+    @Autowired
+    public ProductImportService(EntityManager entityManager, PlatformTransactionManager transactionManager,
+                                AuthClient authClient, ProductSearchIndex searchIndex, ProductOutbox productOutbox,
+                                ProductBrowseIndex browseIndex, ObjectMapper objectMapper,
+                                @Value("${product.import.batch-size:50}") int batchSize,
+                                @Value("${product.import.chunk-size:500}") int chunkSize) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.authClient = authClient;
+        this.searchIndex = searchIndex;
+        this.productOutbox = productOutbox;
+        this.browseIndex = browseIndex;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.chunkSize = chunkSize;
+    }
+
+    public ProductImportResultDTO importProducts(InputStream body) throws IOException {
+        ProductImportResultDTO result = new ProductImportResultDTO();
+        Map<Long, Boolean> owners = new HashMap<>();
+        List<Product> chunk = new ArrayList<>();
+        List<Integer> chunkRows = new ArrayList<>();
+        // Reads a root-level array element by element, or a stream of root-level values
+        try (MappingIterator<Product> rows = objectMapper.readerFor(Product.class).readValues(body)) {
+            int row = 0;
+            while (true) {
+                Product product;
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+                    product = rows.nextValue();
+                } catch (JsonMappingException e) {
+                    // A value of the wrong shape, the iterator resumes at the next row
+                    result.received();
+                    result.error(row++, "Invalid row: " + e.getOriginalMessage());
+                    continue;
+                } catch (JsonProcessingException e) {
+                    // Malformed JSON, nothing after this point can be read reliably
+                    result.error(row, "Malformed input: " + e.getOriginalMessage());
+                    break;
+                }
+                result.received();
+                String error = validate(product, owners);
+                if (error != null) {
+                    result.error(row++, error);
+                    continue;
+                }
+                chunk.add(product);
+                chunkRows.add(row++);
+                if (chunk.size() == chunkSize) {
+                    persistChunk(chunk, chunkRows, result);
+                }
+            }
+        }
+        persistChunk(chunk, chunkRows, result);
+        return result;
+    }
+
+    // Returns why the row is rejected, or null
+    private String validate(Product product, Map<Long, Boolean> owners) {
+        if (product == null) {
+            return "Empty row";
+        }
+        if (product.getName() == null || product.getName().isEmpty()) {
+            return "Name is required";
+        }
+        if (product.getDescription() == null) {
+            return "Description is required";
+        }
+        if (product.getDescription().length() > 1000) {
+            return "Description is longer than 1000 characters";
+        }
+        if (product.getPrice().isNaN() || product.getPrice() < 0) {
+            return "Price must be zero or more";
+        }
+        if (product.getOwnerId() == null) {
+            return "Owner is required";
+        }
+        Boolean ownerExists = owners.computeIfAbsent(product.getOwnerId(), ownerId -> {
+            try {
+                return authClient.getIdentity(ownerId).exists();
+            } catch (RuntimeException e) {
+                log.warn("Error looking up auth {}: {}", ownerId, e.getMessage());
+                return null;
+            }
+        });
+        if (ownerExists == null) {
+            return "Owner could not be checked: " + product.getOwnerId();
+        }
+        return ownerExists ? null : "Owner not found in auth-service: " + product.getOwnerId();
+    }
+
+    private void persistChunk(List<Product> chunk, List<Integer> chunkRows, ProductImportResultDTO result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Session session = entityManager.unwrap(Session.class);
+                session.setJdbcBatchSize(batchSize);
+                // Imported rows are not read back right away, so they are not pushed into the second-level cache
+                session.setCacheMode(CacheMode.IGNORE);
+                for (Product product : chunk) {
+                    product.setId(null);
+                    product.setVersion(0);
+                    entityManager.persist(product);
+                }
+                entityManager.flush();
+                productOutbox.createdAll(chunk);
+                entityManager.clear();
+            });
+            searchIndex.indexAll(chunk);
+            browseIndex.indexAll(chunk);
+            result.created(chunk.size());
+        } catch (RuntimeException e) {
+            // A failed chunk is rolled back as a whole, earlier chunks stay committed
+            for (Integer row : chunkRows) {
+                result.error(row, "Not saved: " + e.getMessage());
+            }
+        }
+        chunk.clear();
+        chunkRows.clear();
+    }
+}
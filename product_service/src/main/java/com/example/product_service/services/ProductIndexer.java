@@ -0,0 +1,106 @@
+package com.example.product_service.services;
+
+import com.example.product_service.entities.Product;
+import com.example.product_service.entities.ProductChangeEvent;
+import com.example.product_service.repositories.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Loads the search and browse indexes at startup and keeps them in step with the product outbox, so that writes
+// made through any product_service instance reach the indexes of every instance. A change is applied by loading the
+// product again, which indexes it as it is now or removes it once it is gone, so replaying a change twice or out
+// of order does no harm. ProductService indexes local writes itself, the outbox catches up the writes of other
+// instances within follow-ms.
+@Component
+public class ProductIndexer {
+    private static final Logger log = LoggerFactory.getLogger(ProductIndexer.class);
+    private final ProductRepository productRepository;
+    private final ProductChangeFeed changeFeed;
+    private final ProductSearchIndex searchIndex;
+    private final ProductBrowseIndex browseIndex;
+    private final int batchSize;
+    // Sequence of the last change applied, negative until the initial load is done
+    private long after = -1;
+    @Autowired
+    public ProductIndexer(ProductRepository productRepository, ProductChangeFeed changeFeed,
+                          ProductSearchIndex searchIndex, ProductBrowseIndex browseIndex,
+                          @Value("${product.index.batch-size:1000}") int batchSize) {
+        this.productRepository = productRepository;
+        this.changeFeed = changeFeed;
+        this.searchIndex = searchIndex;
+        this.browseIndex = browseIndex;
+        this.batchSize = batchSize;
+    }
+
+    // Loads the whole catalog in keyset batches. A batch can be indexed after an update or delete of one of its rows
+    // has committed, so the changes made since the load started are replayed over it before the indexes serve.
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndexes() {
+        long start = System.nanoTime();
+        long loadStartedAfter = changeFeed.settledSequence();
+        Long lastId = 0L;
+        List<Product> batch;
+        do {
+            batch = productRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, batchSize));
+            searchIndex.indexAll(batch);
+            browseIndex.indexAll(batch);
+            if (!batch.isEmpty()) {
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+        } while (!batch.isEmpty());
+        synchronized (this) {
+            after = loadStartedAfter;
+        }
+        follow();
+        searchIndex.markReady();
+        browseIndex.markReady();
+        log.info("Indexed {} products for search and browse in {} ms", searchIndex.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Scheduled(fixedDelayString = "${product.index.follow-ms:1000}", initialDelayString = "${product.index.follow-ms:1000}")
+    public synchronized void follow() {
+        if (after < 0) {
+            return;
+        }
+        List<ProductChangeEvent> events;
+        do {
+            events = changeFeed.visible(after, batchSize);
+            apply(events);
+            if (!events.isEmpty()) {
+                after = events.get(events.size() - 1).getId();
+            }
+        } while (events.size() == batchSize);
+    }
+
+    private void apply(List<ProductChangeEvent> events) {
+        Set<Long> gone = new LinkedHashSet<>();
+        for (ProductChangeEvent event : events) {
+            gone.add(event.getProductId());
+        }
+        if (gone.isEmpty()) {
+            return;
+        }
+        List<Product> products = productRepository.findAllById(gone);
+        for (Product product : products) {
+            gone.remove(product.getId());
+        }
+        searchIndex.indexAll(products);
+        browseIndex.indexAll(products);
+        for (Long productId : gone) {
+            searchIndex.remove(productId);
+            browseIndex.remove(productId);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.product_service.services;
+
+import com.example.product_service.entities.Product;
+import com.example.product_service.entities.ProductChangeEvent;
+import com.example.product_service.repositories.ProductChangeEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Writes product changes to the product_outbox table in the caller's transaction, so an event exists if and only
+// if its change was committed. Rows are inserted with JDBC, which batches them for imports (Hibernate cannot batch
+// auto-increment inserts). Compaction drops events that a later event of the same product supersedes, and deletion
+// tombstones once they are past their retention.
+@Component
+public class ProductOutbox {
+    private static final String INSERT = "insert into product_outbox (product_id, type, payload, created_at) values (?, ?, ?, ?)";
+    private static final int COMPACTION_PAGE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductChangeEventRepository repository;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final long compactAfterMs;
+    private final long tombstoneRetentionMs;
+    private final Counter superseded;
+    private final Counter expired;
+    @Autowired
+    public ProductOutbox(JdbcTemplate jdbcTemplate, ProductChangeEventRepository repository, ObjectMapper objectMapper,
+                         MeterRegistry meterRegistry,
+                         @Value("${product.outbox.compact-after-minutes:60}") long compactAfterMinutes,
+                         @Value("${product.outbox.tombstone-retention-hours:168}") long tombstoneRetentionHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.compactAfterMs = TimeUnit.MINUTES.toMillis(compactAfterMinutes);
+        this.tombstoneRetentionMs = TimeUnit.HOURS.toMillis(tombstoneRetentionHours);
+        this.superseded = Counter.builder("product.outbox.compacted").tag("reason", "superseded").register(meterRegistry);
+        this.expired = Counter.builder("product.outbox.compacted").tag("reason", "expired").register(meterRegistry);
+    }
+
+    public void created(Product product) {
+        createdAll(Collections.singletonList(product));
+    }
+
+    // One JDBC batch for all of them
+    public void createdAll(Collection<Product> products) {
+        List<Object[]> rows = new ArrayList<>();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (Product product : products) {
+            rows.add(new Object[]{product.getId(), ProductChangeEvent.CREATED, toJson(product), now});
+        }
+        insert(ProductChangeEvent.CREATED, rows);
+    }
+
+    // The product must be flushed, so that its version is the one that was written
+    public void updated(Product product) {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{product.getId(), ProductChangeEvent.UPDATED, toJson(product), new Timestamp(System.currentTimeMillis())});
+        insert(ProductChangeEvent.UPDATED, rows);
+    }
+
+    public void deleted(Long productId) {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{productId, ProductChangeEvent.DELETED, null, new Timestamp(System.currentTimeMillis())});
+        insert(ProductChangeEvent.DELETED, rows);
+    }
+
+    private void insert(String type, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Outbox events must be written in the transaction of their change");
+        }
+        jdbcTemplate.batchUpdate(INSERT, rows);
+        meterRegistry.counter("product.outbox.events", "type", type).increment(rows.size());
+    }
+
+    private String toJson(Product product) {
+        try {
+            return objectMapper.writeValueAsString(product);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Product " + product.getId() + " could not be written as JSON", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${product.outbox.compaction-ms:60000}", initialDelayString = "${product.outbox.compaction-ms:60000}")
+    public void compact() {
+        long now = System.currentTimeMillis();
+        Date compactBefore = new Date(now - compactAfterMs);
+        Date tombstonesBefore = new Date(now - tombstoneRetentionMs);
+        int supersededCount = deleteAll(() -> repository.findSupersededIds(compactBefore, PageRequest.of(0, COMPACTION_PAGE)));
+        int expiredCount = deleteAll(() -> repository.findIdsByTypeOlderThan(ProductChangeEvent.DELETED, tombstonesBefore,
+                PageRequest.of(0, COMPACTION_PAGE)));
+        superseded.increment(supersededCount);
+        expired.increment(expiredCount);
+    }
+
+    private int deleteAll(Supplier<List<Long>> nextPage) {
+        int deleted = 0;
+        List<Long> ids;
+        while (!(ids = nextPage.get()).isEmpty()) {
+            deleted += repository.deleteByIdIn(ids);
+        }
+        return deleted;
+    }
+}
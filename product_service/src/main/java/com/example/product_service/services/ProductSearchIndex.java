@@ -0,0 +1,372 @@
+package com.example.product_service.services;
+
+import com.example.product_service.entities.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index over product names and descriptions. Every indexed product gets a dense int document
+// number, and each term keeps its postings as parallel int (document) and float (weight) arrays in document order.
+// A query matches products that contain every query token, either as a whole term or as a prefix of a term, and
+// ranks them by idf-weighted term frequency with name matches counting double. Updated and deleted products leave
+// a tombstone behind until enough of them pile up to compact the postings.
+@Component
+public class ProductSearchIndex {
+    private static final float NAME_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    // A prefix match scores less than the whole word
+    private static final float PREFIX_WEIGHT = 0.5f;
+    // Shorter prefixes match too many terms to be useful
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final int COMPACT_MIN_DELETED = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Sorted, so the terms that start with a prefix are one contiguous range
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    private final Map<Long, Integer> documentsByProduct = new HashMap<>();
+    private long[] productIds = new long[1024];
+    private int documentCount;
+    private final BitSet deleted = new BitSet();
+    private int deletedCount;
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Called once the initial load from the database has indexed every product
+    public void markReady() {
+        ready = true;
+    }
+
+    public void index(Product product) {
+        indexAll(Collections.singletonList(product));
+    }
+
+    // Adds or replaces the products under one lock, used for the batches of the initial load
+    public void indexAll(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            for (Product product : products) {
+                delete(product.getId());
+                add(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            delete(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentsByProduct.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ids of the best matching products, best first
+    public List<Long> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            List<TokenTerms> perToken = new ArrayList<>();
+            for (String token : new LinkedHashSet<>(tokens)) {
+                TokenTerms tokenTerms = terms(token);
+                if (tokenTerms.postings.isEmpty()) {
+                    return Collections.emptyList();
+                }
+                perToken.add(tokenTerms);
+            }
+            // Only the rarest token's documents are collected, the other tokens are probed for those documents alone
+            perToken.sort(Comparator.comparingLong(tokenTerms -> tokenTerms.documentCount));
+            Matches result = collect(perToken.get(0));
+            for (int i = 1; i < perToken.size() && result.size > 0; i++) {
+                result = retain(result, perToken.get(i));
+            }
+            return top(result, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private void add(Product product) {
+        Map<String, Float> weights = new HashMap<>();
+        for (String token : tokenize(product.getName())) {
+            weights.merge(token, NAME_WEIGHT, Float::sum);
+        }
+        for (String token : tokenize(product.getDescription())) {
+            weights.merge(token, DESCRIPTION_WEIGHT, Float::sum);
+        }
+        if (documentCount == productIds.length) {
+            productIds = Arrays.copyOf(productIds, documentCount + (documentCount >> 1));
+        }
+        int document = documentCount++;
+        productIds[document] = product.getId();
+        documentsByProduct.put(product.getId(), document);
+        // Document numbers only grow, so appending keeps every postings list sorted
+        for (Map.Entry<String, Float> weight : weights.entrySet()) {
+            terms.computeIfAbsent(weight.getKey(), term -> new Postings()).add(document, weight.getValue());
+        }
+    }
+
+    private void delete(Long productId) {
+        Integer document = documentsByProduct.remove(productId);
+        if (document == null) {
+            return;
+        }
+        deleted.set(document);
+        deletedCount++;
+        if (deletedCount >= COMPACT_MIN_DELETED && deletedCount * 4 >= documentCount) {
+            compact();
+        }
+    }
+
+    // Drops tombstoned documents from every postings list and renumbers the live ones in the same order
+    private void compact() {
+        int[] renumbered = new int[documentCount];
+        int live = 0;
+        for (int document = 0; document < documentCount; document++) {
+            renumbered[document] = deleted.get(document) ? -1 : live++;
+        }
+        Iterator<Postings> postingsIterator = terms.values().iterator();
+        while (postingsIterator.hasNext()) {
+            Postings postings = postingsIterator.next();
+            postings.renumber(renumbered);
+            if (postings.size == 0) {
+                postingsIterator.remove();
+            }
+        }
+        long[] compacted = new long[Math.max(1024, live + (live >> 1))];
+        for (int document = 0; document < documentCount; document++) {
+            if (renumbered[document] >= 0) {
+                compacted[renumbered[document]] = productIds[document];
+            }
+        }
+        productIds = compacted;
+        documentCount = live;
+        for (Map.Entry<Long, Integer> entry : documentsByProduct.entrySet()) {
+            entry.setValue(renumbered[entry.getValue()]);
+        }
+        deleted.clear();
+        deletedCount = 0;
+    }
+
+    // Terms matching the token: the whole word, and for long enough tokens the terms it is a prefix of
+    private TokenTerms terms(String token) {
+        int liveCount = Math.max(1, documentCount - deletedCount);
+        TokenTerms tokenTerms = new TokenTerms();
+        Postings exact = terms.get(token);
+        if (exact != null) {
+            tokenTerms.add(exact, idf(exact, liveCount));
+        }
+        if (token.length() >= MIN_PREFIX_LENGTH) {
+            int expansions = 0;
+            for (Map.Entry<String, Postings> term : terms.tailMap(token, false).entrySet()) {
+                if (!term.getKey().startsWith(token) || expansions++ == MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                tokenTerms.add(term.getValue(), PREFIX_WEIGHT * idf(term.getValue(), liveCount));
+            }
+        }
+        return tokenTerms;
+    }
+
+    private static float idf(Postings postings, int liveCount) {
+        return (float) Math.log(1 + (double) liveCount / postings.size);
+    }
+
+    // Live documents of all the token's terms, merged in document order
+    private Matches collect(TokenTerms tokenTerms) {
+        Matches result = new Matches(0);
+        for (int t = 0; t < tokenTerms.postings.size(); t++) {
+            Postings postings = tokenTerms.postings.get(t);
+            float factor = tokenTerms.factors.get(t);
+            Matches matches = new Matches(postings.size);
+            for (int i = 0; i < postings.size; i++) {
+                int document = postings.documents[i];
+                if (!deleted.get(document)) {
+                    matches.append(document, postings.weights[i] * factor);
+                }
+            }
+            result = union(result, matches);
+        }
+        return result;
+    }
+
+    // A document matching through several terms keeps its best one
+    private static Matches union(Matches a, Matches b) {
+        if (a.size == 0) {
+            return b;
+        }
+        Matches result = new Matches(a.size + b.size);
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            if (j == b.size || (i < a.size && a.documents[i] < b.documents[j])) {
+                result.append(a.documents[i], a.scores[i++]);
+            } else if (i == a.size || b.documents[j] < a.documents[i]) {
+                result.append(b.documents[j], b.scores[j++]);
+            } else {
+                result.append(a.documents[i], Math.max(a.scores[i++], b.scores[j++]));
+            }
+        }
+        return result;
+    }
+
+    // Keeps the candidates that also contain the token, adding its best term score. Each postings list is sorted,
+    // so a probe is a binary search that starts after the previous candidate's position.
+    private static Matches retain(Matches candidates, TokenTerms tokenTerms) {
+        int[] from = new int[tokenTerms.postings.size()];
+        Matches result = new Matches(candidates.size);
+        for (int c = 0; c < candidates.size; c++) {
+            int document = candidates.documents[c];
+            float best = -1;
+            for (int t = 0; t < from.length; t++) {
+                Postings postings = tokenTerms.postings.get(t);
+                if (from[t] >= postings.size) {
+                    continue;
+                }
+                int found = Arrays.binarySearch(postings.documents, from[t], postings.size, document);
+                if (found >= 0) {
+                    best = Math.max(best, postings.weights[found] * tokenTerms.factors.get(t));
+                    from[t] = found + 1;
+                } else {
+                    from[t] = -found - 1;
+                }
+            }
+            if (best >= 0) {
+                result.append(document, candidates.scores[c] + best);
+            }
+        }
+        return result;
+    }
+
+    private List<Long> top(Matches matches, int limit) {
+        // Min-heap of the best positions seen so far, ties go to the older document
+        PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1, (x, y) -> {
+            int byScore = Float.compare(matches.scores[x], matches.scores[y]);
+            return byScore != 0 ? byScore : Integer.compare(matches.documents[y], matches.documents[x]);
+        });
+        for (int i = 0; i < matches.size; i++) {
+            best.add(i);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        Long[] ranked = new Long[best.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = productIds[matches.documents[best.poll()]];
+        }
+        return Arrays.asList(ranked);
+    }
+
+    private static class Postings {
+        private int[] documents = new int[4];
+        private float[] weights = new float[4];
+        private int size;
+
+        void add(int document, float weight) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            documents[size] = document;
+            weights[size++] = weight;
+        }
+
+        void renumber(int[] renumbered) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int document = renumbered[documents[i]];
+                if (document >= 0) {
+                    documents[kept] = document;
+                    weights[kept++] = weights[i];
+                }
+            }
+            size = kept;
+            if (size < documents.length / 4) {
+                documents = Arrays.copyOf(documents, Math.max(4, size));
+                weights = Arrays.copyOf(weights, Math.max(4, size));
+            }
+        }
+    }
+
+    private static class TokenTerms {
+        private final List<Postings> postings = new ArrayList<>();
+        private final List<Float> factors = new ArrayList<>();
+        // Upper bound on the documents the token can match
+        private long documentCount;
+
+        void add(Postings termPostings, float factor) {
+            postings.add(termPostings);
+            factors.add(factor);
+            documentCount += termPostings.size;
+        }
+    }
+
+    // Matching documents of one query step, in document order
+    private static class Matches {
+        private final int[] documents;
+        private final float[] scores;
+        private int size;
+
+        Matches(int capacity) {
+            documents = new int[capacity];
+            scores = new float[capacity];
+        }
+
+        void append(int document, float score) {
+            documents[size] = document;
+            scores[size++] = score;
+        }
+    }
+}
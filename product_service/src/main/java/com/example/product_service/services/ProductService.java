@@ -1,30 +1,94 @@
 package com.example.product_service.services;
 
-import com.example.product_service.entities.Auth;
+import com.example.product_service.dto.ProductBatchResponseDTO;
+import com.example.product_service.dto.ProductPageResponseDTO;
 import com.example.product_service.entities.Product;
 import com.example.product_service.repositories.ProductRepository;
-import com.netflix.hystrix.contrib.javanica.annotation.HystrixCommand;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.ResponseEntity;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class ProductService {
     private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AuthClient authClient;
+    private final ProductChangeNotifier productChangeNotifier;
+    private final ProductSearchIndex searchIndex;
+    private final ProductOutbox productOutbox;
+    private final ProductBrowseIndex browseIndex;
     @Autowired
-    private RestTemplate restTemplate;
-    @Autowired
-    public ProductService(ProductRepository productRepository, RestTemplate restTemplate) {
+    public ProductService(ProductRepository productRepository, PlatformTransactionManager transactionManager,
+                          AuthClient authClient, ProductChangeNotifier productChangeNotifier,
+                          ProductSearchIndex searchIndex, ProductOutbox productOutbox, ProductBrowseIndex browseIndex) {
         this.productRepository = productRepository;
-        this.restTemplate = restTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.authClient = authClient;
+        this.productChangeNotifier = productChangeNotifier;
+        this.searchIndex = searchIndex;
+        this.productOutbox = productOutbox;
+        this.browseIndex = browseIndex;
+    }
+
+    // The indexes are loaded and kept in step with other instances by ProductIndexer
+    public boolean isSearchReady() {
+        return searchIndex.isReady();
+    }
+
+    public boolean isBrowseReady() {
+        return browseIndex.isReady();
+    }
+
+    // Best matches first
+    public List<Product> search(String query, int limit) {
+        return loadInOrder(searchIndex.search(query, limit));
+    }
+
+    // One page of the products priced within [minPrice, maxPrice], sorted by price or createdAt (descending with a
+    // leading '-'). The index picks the ids, only the page itself is loaded from the database.
+    public ProductPageResponseDTO browse(Double minPrice, Double maxPrice, String sort, String cursor, int limit) {
+        ProductBrowseIndex.Page page = browseIndex.browse(minPrice, maxPrice, sort, cursor, limit);
+        return new ProductPageResponseDTO(loadInOrder(page.getIds()), page.getNextCursor());
+    }
+
+    // Products deleted since the ids were picked are left out
+    private List<Product> loadInOrder(List<Long> ids) {
+        Map<Long, Product> productsById = new HashMap<>();
+        for (Product product : productRepository.findAllById(ids)) {
+            productsById.put(product.getId(), product);
+        }
+        List<Product> products = new ArrayList<>();
+        for (Long id : ids) {
+            Product product = productsById.get(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
     }
     public Optional<Product> findById(Long id) {
         return productRepository.findById(id);
     }
+
+    public Optional<Long> findVersion(Long id) {
+        return productRepository.findVersionById(id);
+    }
     public List<Product> getAllProducts() {
         return productRepository.findAll();
     }
@@ -33,33 +97,97 @@ public class ProductService {
         return productRepository.findById(id);
     }
 
+    public ProductBatchResponseDTO findAllByIds(List<Long> ids) {
+        return findAllByIds(ids, Collections.emptyMap());
+    }
+
+    // Products the caller already holds at their current version (knownVersions) are only listed by id. Their
+    // versions are checked first, and only the rest of the batch is loaded.
+    public ProductBatchResponseDTO findAllByIds(List<Long> ids, Map<Long, Long> knownVersions) {
+        // One query for the whole batch, duplicates are collapsed before hitting the database
+        Set<Long> requestedIds = new LinkedHashSet<>(ids);
+        List<Long> notModifiedIds = new ArrayList<>();
+        Set<Long> toLoad = requestedIds;
+        if (!knownVersions.isEmpty()) {
+            toLoad = new LinkedHashSet<>();
+            for (Object[] row : productRepository.findVersionsByIdIn(requestedIds)) {
+                Long id = (Long) row[0];
+                if (((Long) row[1]).equals(knownVersions.get(id))) {
+                    notModifiedIds.add(id);
+                } else {
+                    toLoad.add(id);
+                }
+            }
+        }
+        List<Product> products = toLoad.isEmpty() ? new ArrayList<>() : productRepository.findAllById(toLoad);
+
+        Set<Long> foundIds = new LinkedHashSet<>(notModifiedIds);
+        for (Product product : products) {
+            foundIds.add(product.getId());
+        }
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : requestedIds) {
+            if (!foundIds.contains(id)) {
+                missingIds.add(id);
+            }
+        }
+        return new ProductBatchResponseDTO(products, missingIds, notModifiedIds);
+    }
+
+    // Reads skip the owner check, an unknown owner simply has no products
     public Optional<Product> getProductByOwner(Long ownerId) {
-        // Fetch Auth entity from Auth service
-        String authServiceUrl = "http://product-service/authService/api/auth/" + ownerId;
-        ResponseEntity<Auth> response = restTemplate.getForEntity(authServiceUrl, Auth.class);
+        return productRepository.findFirstByOwnerIdOrderByCreatedAtDescIdDesc(ownerId);
+    }
 
-        if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-            // Fetch product by ownerId if Auth entity is found
-            return productRepository.findByOwnerId(ownerId);
+    public ProductPageResponseDTO getOwnerCatalog(Long ownerId, String cursor, int size) {
+        Pageable page = PageRequest.of(0, Math.max(1, Math.min(size, 100)));
+        List<Product> products;
+        if (cursor == null) {
+            products = productRepository.findOwnerCatalog(ownerId, page);
         } else {
-            return Optional.empty();
+            products = productRepository.findOwnerCatalogAfter(ownerId, cursorCreatedAt(cursor), cursorId(cursor), page);
         }
+        String nextCursor = null;
+        if (products.size() == page.getPageSize()) {
+            Product last = products.get(products.size() - 1);
+            nextCursor = last.getCreatedAt().getTime() + "_" + last.getId();
+        }
+        return new ProductPageResponseDTO(products, nextCursor);
     }
 
-    @HystrixCommand(fallbackMethod = "createProductFallback")
-    public Product createProduct(Product product) {
-        // Assume AuthService URL is something like http://localhost:8002/api/auth
-        System.out.println("we start create Product service");
-        String url = "http://product-service/authService/api/auth/" + product.getOwnerId();
-        System.out.println("we put the url");
+    // Cursors have the form <createdAt epoch millis>_<product id>
+    private static Date cursorCreatedAt(String cursor) {
+        try {
+            return new Date(Long.parseLong(cursor.substring(0, cursor.indexOf('_'))));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
 
-        ResponseEntity<Auth> response = restTemplate.getForEntity(url, Auth.class);
-        System.out.println("Response Status Code: " + response.getStatusCode());
-        System.out.println("Response Body: " + response.getBody());
+    private static Long cursorId(String cursor) {
+        try {
+            return Long.parseLong(cursor.substring(cursor.indexOf('_') + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
 
-        if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+    // Writes, each with its outbox event in the same transaction. The owner is looked up before the transaction
+    // starts, so a slow auth-service does not hold a connection and an open transaction.
+    public Product createProduct(Product product) {
+        System.out.println("we start create Product service");
+        // Owner existence comes from the identity cache, auth-service is only called on a miss
+        if (authClient.getIdentity(product.getOwnerId()).exists()) {
             try {
-                return productRepository.save(product);
+                return transactionTemplate.execute(status -> {
+                    Product savedProduct = productRepository.save(product);
+                    productOutbox.created(savedProduct);
+                    afterCommit(() -> {
+                        searchIndex.index(savedProduct);
+                        browseIndex.index(savedProduct);
+                    });
+                    return savedProduct;
+                });
             } catch (Exception e) {
                 System.err.println("Error saving product: " + e.getMessage());
                 throw e; // Rethrow the exception to handle it further up the call stack
@@ -70,11 +198,7 @@ public class ProductService {
         }
     }
 
-    public Product createProductFallback(Product order) {
-        // Fallback logic for createProduct method
-        return new Product(); // Return a default Order object or null
-    }
-
+    @Transactional
     public Product updateProduct(Long id, Product product) {
 
         // Fetch the existing order from the database using the orderId
@@ -94,14 +218,44 @@ public class ProductService {
             existingProduct.setPrice(product.getPrice());
         }
 
-        return productRepository.save(existingProduct);
+        // Flushed so that the outbox event carries the new version
+        Product savedProduct = productRepository.saveAndFlush(existingProduct);
+        productOutbox.updated(savedProduct);
+        afterCommit(() -> {
+            searchIndex.index(savedProduct);
+            browseIndex.index(savedProduct);
+            productChangeNotifier.productChanged(id);
+        });
+        return savedProduct;
     }
 
+    @Transactional
     public boolean deleteProduct(Long id) {
         if (!productRepository.existsById(id)) {
             return false;
         }
         productRepository.deleteById(id);
+        productOutbox.deleted(id);
+        afterCommit(() -> {
+            searchIndex.remove(id);
+            browseIndex.remove(id);
+            productChangeNotifier.productChanged(id);
+        });
         return true;
     }
+
+    // The indexes and other services' caches only hear of a change once it is committed, so a rolled back write
+    // never shows up in them and a cache reloading right after the notification reads the new row
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 }
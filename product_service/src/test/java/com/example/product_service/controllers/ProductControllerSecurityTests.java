@@ -0,0 +1,119 @@
+package com.example.product_service.controllers;
+
+import com.example.product_service.dto.ProductBatchResponseDTO;
+import com.example.product_service.dto.ProductImportResultDTO;
+import com.example.product_service.entities.Auth;
+import com.example.product_service.entities.Product;
+import com.example.product_service.services.AuthTokenIssuer;
+import com.example.product_service.services.ConcurrencyLimiters;
+import com.example.product_service.services.IdempotencyStore;
+import com.example.product_service.services.IdentityCache;
+import com.example.product_service.services.ProductChangeFeed;
+import com.example.product_service.services.ProductImportService;
+import com.example.product_service.services.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Runs the endpoints other services call through the real security chain
+@WebMvcTest(controllers = {ProductController.class, IdentityCacheController.class},
+        properties = "auth.token.secret=" + ProductControllerSecurityTests.SECRET)
+class ProductControllerSecurityTests {
+
+    static final String SECRET = "test-secret-0123456789abcdef-0123456789";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ProductService productService;
+    @MockBean
+    private ConcurrencyLimiters limiters;
+    @MockBean
+    private IdempotencyStore idempotencyStore;
+    @MockBean
+    private ProductImportService productImportService;
+    @MockBean
+    private ProductChangeFeed productChangeFeed;
+    @MockBean
+    private IdentityCache identityCache;
+    // Stands in for Config's load-balanced RestTemplate
+    @MockBean
+    private RestTemplate restTemplate;
+
+    @Test
+    void batchLookupNeedsNoCredentials() throws Exception {
+        Product product = new Product("Kettle", "Description", 25.0, 7L);
+        product.setId(1L);
+        when(productService.findAllByIds(eq(Arrays.asList(1L, 2L)), anyMap()))
+                .thenReturn(new ProductBatchResponseDTO(Collections.singletonList(product),
+                        Collections.singletonList(2L), new ArrayList<>()));
+
+        mockMvc.perform(post("/api/products/batch").contentType(MediaType.APPLICATION_JSON).content("[1,2]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products[0].id").value(1))
+                .andExpect(jsonPath("$.missingIds[0]").value(2));
+    }
+
+    @Test
+    void importNeedsNoCredentials() throws Exception {
+        when(productImportService.importProducts(any(InputStream.class))).thenReturn(new ProductImportResultDTO());
+
+        mockMvc.perform(post("/api/products/import").contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"name\":\"Kettle\",\"description\":\"Steel\",\"price\":25.0,\"ownerId\":7}\n"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void otherWritesStillRequireAuthentication() throws Exception {
+        mockMvc.perform(post("/api/products/1").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void invalidBearerTokenIsRejectedEvenOnPermittedEndpoints() throws Exception {
+        mockMvc.perform(post("/api/products/batch").contentType(MediaType.APPLICATION_JSON).content("[1]")
+                        .header("Authorization", "Bearer not-a-token"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void cacheInvalidationNeedsAServiceToken() throws Exception {
+        AuthTokenIssuer issuer = new AuthTokenIssuer(SECRET, 60);
+        Auth user = new Auth();
+        user.setId(7L);
+        user.setAuthType("company");
+
+        mockMvc.perform(delete("/api/cache/auth/1"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete("/api/cache/auth/1").header(HttpHeaders.AUTHORIZATION, "Bearer " + issuer.issue(user)))
+                .andExpect(status().isForbidden());
+        verifyNoInteractions(identityCache);
+
+        mockMvc.perform(delete("/api/cache/auth/1")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + issuer.issueServiceToken()))
+                .andExpect(status().isNoContent());
+        verify(identityCache).invalidate(1L);
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.product_service.repositories;
+
+import com.example.product_service.dto.ProductBatchResponseDTO;
+import com.example.product_service.dto.ProductPageResponseDTO;
+import com.example.product_service.entities.Product;
+import com.example.product_service.services.AuthClient;
+import com.example.product_service.services.ProductBrowseIndex;
+import com.example.product_service.services.ProductChangeNotifier;
+import com.example.product_service.services.ProductOutbox;
+import com.example.product_service.services.ProductSearchIndex;
+import com.example.product_service.services.ProductService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ProductRepositoryTests {
+
+    private static final int CATALOG_SIZE = 250;
+    private static final int PAGE_SIZE = 100;
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private AuthClient authClient;
+    private ProductService productService;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            entityManager.persist(new Product("Product " + i, "Description", 1.0, 7L));
+        }
+        for (int i = 0; i < 10; i++) {
+            entityManager.persist(new Product("Other " + i, "Description", 1.0, 8L));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        authClient = Mockito.mock(AuthClient.class);
+        productService = new ProductService(productRepository, transactionManager, authClient,
+                Mockito.mock(ProductChangeNotifier.class), new ProductSearchIndex(), Mockito.mock(ProductOutbox.class),
+                new ProductBrowseIndex());
+        statistics = entityManager.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void ownerCatalogPagesCoverEveryProductOnceNewestFirst() {
+        List<Product> seen = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        String cursor = null;
+        do {
+            ProductPageResponseDTO page = productService.getOwnerCatalog(7L, cursor, PAGE_SIZE);
+            pageSizes.add(page.getProducts().size());
+            seen.addAll(page.getProducts());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(CATALOG_SIZE, seen.size());
+        assertEquals(CATALOG_SIZE, new HashSet<>(seen).size());
+        assertTrue(seen.stream().allMatch(product -> product.getOwnerId() == 7L));
+        for (int i = 1; i < seen.size(); i++) {
+            Product previous = seen.get(i - 1);
+            Product current = seen.get(i);
+            int byCreatedAt = previous.getCreatedAt().compareTo(current.getCreatedAt());
+            assertTrue(byCreatedAt > 0 || (byCreatedAt == 0 && previous.getId() > current.getId()));
+        }
+        // One seek per page, no count query and no per-row selects
+        assertEquals(pageSizes.size(), statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void lastFullPageIsFollowedByAnEmptyOne() {
+        ProductPageResponseDTO page = productService.getOwnerCatalog(8L, null, 10);
+        ProductPageResponseDTO next = productService.getOwnerCatalog(8L, page.getNextCursor(), 10);
+
+        assertEquals(10, page.getProducts().size());
+        assertTrue(next.getProducts().isEmpty());
+        assertNull(next.getNextCursor());
+    }
+
+    @Test
+    void batchLookupCollapsesDuplicatesAndListsMissingIds() {
+        List<Product> others = productRepository.findOwnerCatalog(8L, PageRequest.of(0, 2));
+        Long first = others.get(0).getId();
+        Long second = others.get(1).getId();
+        statistics.clear();
+
+        ProductBatchResponseDTO response = productService.findAllByIds(Arrays.asList(first, second, first, -1L));
+
+        assertEquals(new HashSet<>(Arrays.asList(first, second)),
+                response.getProducts().stream().map(Product::getId).collect(Collectors.toSet()));
+        assertEquals(2, response.getProducts().size());
+        assertEquals(Collections.singletonList(-1L), response.getMissingIds());
+        assertTrue(response.getNotModifiedIds().isEmpty());
+        // The whole batch in one query
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void batchLookupLoadsOnlyProductsWhoseVersionChanged() {
+        List<Product> others = productRepository.findOwnerCatalog(8L, PageRequest.of(0, 2));
+        Long current = others.get(0).getId();
+        Long changed = others.get(1).getId();
+        Map<Long, Long> knownVersions = new HashMap<>();
+        knownVersions.put(current, others.get(0).getVersion());
+        knownVersions.put(changed, others.get(1).getVersion() - 1);
+
+        ProductBatchResponseDTO response = productService.findAllByIds(Arrays.asList(current, changed, -1L), knownVersions);
+
+        assertEquals(Collections.singletonList(current), response.getNotModifiedIds());
+        assertEquals(1, response.getProducts().size());
+        assertEquals(changed, response.getProducts().get(0).getId());
+        assertEquals(Collections.singletonList(-1L), response.getMissingIds());
+    }
+
+    @Test
+    void ownerLookupsDoNotCallAuthService() {
+        assertTrue(productService.getProductByOwner(7L).isPresent());
+        productService.getOwnerCatalog(7L, null, 20);
+
+        verifyNoInteractions(authClient);
+    }
+}
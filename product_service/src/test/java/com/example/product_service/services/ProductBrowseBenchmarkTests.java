@@ -0,0 +1,164 @@
+package com.example.product_service.services;
+
+import com.example.product_service.dto.ProductPageResponseDTO;
+import com.example.product_service.entities.Product;
+import com.example.product_service.repositories.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Compares GET /api/products/browse against the keyset query the database would run for it, on a catalog with an
+// index on (price, id). The rows are committed, so that the index is loaded the way it is at startup.
+@DataJpaTest(properties = "logging.level.root=INFO")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Tag("benchmark")
+class ProductBrowseBenchmarkTests {
+
+    private static final int CATALOG_SIZE = 100_000;
+    private static final int QUERIES = 1000;
+    private static final int PAGE_SIZE = 20;
+    private static final long CREATED_AT_START = 1_600_000_000_000L;
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ProductBrowseIndex browseIndex;
+    private ProductService productService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("create index idx_products_price_id on products (price, id)");
+        jdbcTemplate.execute("create index idx_products_created_id on products (created_at, id)");
+        Random random = new Random(42);
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= CATALOG_SIZE; id++) {
+            rows.add(new Object[]{id, "Product " + id, 1L, "Description", Math.round(random.nextDouble() * 100_000) / 100.0,
+                    new Timestamp(CREATED_AT_START + random.nextInt(CATALOG_SIZE) * 1000L)});
+            if (rows.size() == 5000) {
+                insert(rows);
+                rows.clear();
+            }
+        }
+        browseIndex = new ProductBrowseIndex();
+        ProductSearchIndex searchIndex = new ProductSearchIndex();
+        productService = new ProductService(productRepository, transactionManager, Mockito.mock(AuthClient.class),
+                Mockito.mock(ProductChangeNotifier.class), searchIndex, Mockito.mock(ProductOutbox.class),
+                browseIndex);
+        new ProductIndexer(productRepository, Mockito.mock(ProductChangeFeed.class), searchIndex, browseIndex, 1000)
+                .buildIndexes();
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAllInBatch();
+        jdbcTemplate.execute("drop index idx_products_price_id");
+        jdbcTemplate.execute("drop index idx_products_created_id");
+    }
+
+    @Test
+    void browseReturnsTheSamePagesAsTheKeysetQueryFaster() {
+        Random random = new Random(7);
+        List<String> sorts = Arrays.asList("price", "-price", "createdAt", "-createdAt");
+        List<Object[]> queries = new ArrayList<>();
+        for (int i = 0; i < QUERIES; i++) {
+            double minPrice = random.nextInt(900);
+            // Half narrow ranges and half wide ones
+            double maxPrice = minPrice + 1 + random.nextInt(i % 2 == 0 ? 5 : 100);
+            queries.add(new Object[]{minPrice, maxPrice, sorts.get(i % sorts.size())});
+        }
+
+        // Two pages per query, warmed up once
+        long indexNanos = 0;
+        long sqlNanos = 0;
+        for (int round = 0; round < 2; round++) {
+            indexNanos = 0;
+            sqlNanos = 0;
+            for (Object[] query : queries) {
+                double minPrice = (Double) query[0];
+                double maxPrice = (Double) query[1];
+                String sort = (String) query[2];
+
+                long start = System.nanoTime();
+                ProductBrowseIndex.Page first = browseIndex.browse(minPrice, maxPrice, sort, null, PAGE_SIZE);
+                ProductBrowseIndex.Page second = first.getNextCursor() == null ? null
+                        : browseIndex.browse(minPrice, maxPrice, sort, first.getNextCursor(), PAGE_SIZE);
+                indexNanos += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                List<Map<String, Object>> sqlFirst = keysetPage(minPrice, maxPrice, sort, null);
+                List<Map<String, Object>> sqlSecond = sqlFirst.size() < PAGE_SIZE ? null
+                        : keysetPage(minPrice, maxPrice, sort, sqlFirst.get(sqlFirst.size() - 1));
+                sqlNanos += System.nanoTime() - start;
+
+                assertEquals(ids(sqlFirst), first.getIds(), sort + " " + minPrice + ".." + maxPrice);
+                assertEquals(sqlSecond == null ? null : ids(sqlSecond), second == null ? null : second.getIds());
+            }
+        }
+        System.out.println("Product browse over " + CATALOG_SIZE + " products: " + QUERIES + " queries of two pages, "
+                + "in-memory index " + indexNanos / 1000 / QUERIES + " us/query, keyset SQL "
+                + sqlNanos / 1000 / QUERIES + " us/query");
+
+        assertTrue(indexNanos < sqlNanos, "index " + indexNanos + " ns, SQL " + sqlNanos + " ns");
+    }
+
+    @Test
+    void serviceLoadsThePageInIndexOrder() {
+        ProductPageResponseDTO page = productService.browse(100.0, 200.0, "-price", null, PAGE_SIZE);
+
+        assertEquals(PAGE_SIZE, page.getProducts().size());
+        assertEquals(browseIndex.browse(100.0, 200.0, "-price", null, PAGE_SIZE).getIds(),
+                page.getProducts().stream().map(Product::getId).collect(Collectors.toList()));
+        for (int i = 1; i < page.getProducts().size(); i++) {
+            assertTrue(page.getProducts().get(i - 1).getPrice() >= page.getProducts().get(i).getPrice());
+        }
+    }
+
+    // The page the database returns for the same range, sort and position
+    private List<Map<String, Object>> keysetPage(double minPrice, double maxPrice, String sort, Map<String, Object> after) {
+        String column = sort.endsWith("price") ? "price" : "created_at";
+        boolean descending = sort.startsWith("-");
+        String direction = descending ? " desc" : "";
+        String sql = "select id, price, created_at from products where price between ? and ?";
+        List<Object> args = new ArrayList<>(Arrays.asList(minPrice, maxPrice));
+        if (after != null) {
+            String comparison = descending ? "<" : ">";
+            sql += " and (" + column + " " + comparison + " ? or (" + column + " = ? and id " + comparison + " ?))";
+            Object key = after.get(column);
+            args.addAll(Arrays.asList(key, key, after.get("id")));
+        }
+        sql += " order by " + column + direction + ", id" + direction + " limit " + PAGE_SIZE;
+        return jdbcTemplate.queryForList(sql, args.toArray());
+    }
+
+    private static List<Long> ids(List<Map<String, Object>> rows) {
+        return rows.stream().map(row -> ((Number) row.get("id")).longValue()).collect(Collectors.toList());
+    }
+
+    private void insert(List<Object[]> rows) {
+        jdbcTemplate.batchUpdate("insert into products (id, name, owner_id, description, price, created_at, version) "
+                + "values (?, ?, ?, ?, ?, ?, 0)", rows);
+    }
+}
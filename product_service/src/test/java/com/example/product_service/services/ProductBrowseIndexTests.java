@@ -0,0 +1,172 @@
+package com.example.product_service.services;
+
+import com.example.product_service.entities.Product;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductBrowseIndexTests {
+
+    private static final int CATALOG_SIZE = 1_000_000;
+    private static final int QUERIES = 2000;
+
+    @Test
+    void pagesCoverTheRangeOnceInPriceOrder() {
+        ProductBrowseIndex index = new ProductBrowseIndex();
+        List<Product> products = randomProducts(new Random(7), 5000, 100);
+        index.indexAll(products);
+
+        for (String sort : Arrays.asList("price", "-price", "createdAt", "-createdAt")) {
+            assertEquals(expected(products, 20.0, 60.0, sort), browseAll(index, 20.0, 60.0, sort, 37), sort);
+            assertEquals(expected(products, null, null, sort), browseAll(index, null, null, sort, 100), sort);
+        }
+    }
+
+    @Test
+    void narrowRangesSortedByCreatedAtMatchTheFullScan() {
+        ProductBrowseIndex index = new ProductBrowseIndex();
+        List<Product> products = randomProducts(new Random(11), 20_000, 1000);
+        index.indexAll(products);
+
+        // About 220 products in range, few enough that these pages are picked from the price range
+        assertEquals(expected(products, 100.0, 110.0, "createdAt"), browseAll(index, 100.0, 110.0, "createdAt", 25));
+        assertEquals(expected(products, 100.0, 110.0, "-createdAt"), browseAll(index, 100.0, 110.0, "-createdAt", 25));
+    }
+
+    @Test
+    void equalPricesAreOrderedById() {
+        ProductBrowseIndex index = new ProductBrowseIndex();
+        index.indexAll(Arrays.asList(product(3L, 5.0, 0), product(1L, 5.0, 0), product(2L, 5.0, 0), product(4L, 1.0, 0)));
+
+        ProductBrowseIndex.Page first = index.browse(null, null, "price", null, 2);
+        assertEquals(Arrays.asList(4L, 1L), first.getIds());
+        assertEquals(Arrays.asList(2L, 3L), index.browse(null, null, "price", first.getNextCursor(), 2).getIds());
+        assertEquals(Arrays.asList(3L, 2L, 1L), index.browse(5.0, 5.0, "-price", null, 10).getIds());
+    }
+
+    @Test
+    void updatesAndDeletesAreReflectedImmediately() {
+        ProductBrowseIndex index = new ProductBrowseIndex();
+        index.index(product(1L, 10.0, 1000));
+        index.index(product(2L, 20.0, 2000));
+        index.index(product(3L, 30.0, 3000));
+
+        index.index(product(1L, 40.0, 1000));
+        index.remove(2L);
+
+        assertEquals(Arrays.asList(3L, 1L), index.browse(null, null, "price", null, 10).getIds());
+        assertEquals(Arrays.asList(1L, 3L), index.browse(null, null, "createdAt", null, 10).getIds());
+        assertEquals(Collections.emptyList(), index.browse(null, 25.0, "price", null, 10).getIds());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void lastPageHasNoCursorAndBadInputIsRejected() {
+        ProductBrowseIndex index = new ProductBrowseIndex();
+        index.index(product(1L, 10.0, 1000));
+
+        assertNull(index.browse(null, null, "price", null, 10).getNextCursor());
+        assertThrows(IllegalArgumentException.class, () -> index.browse(null, null, "name", null, 10));
+        assertThrows(IllegalArgumentException.class, () -> index.browse(null, null, "price", "10.0", 10));
+        assertThrows(IllegalArgumentException.class, () -> index.browse(null, null, "createdAt", "x_1", 10));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void pagesStaySubMillisecondOnAMillionProducts() {
+        ProductBrowseIndex index = new ProductBrowseIndex();
+        Random random = new Random(42);
+        long buildStart = System.nanoTime();
+        List<Product> batch = new ArrayList<>();
+        for (long id = 1; id <= CATALOG_SIZE; id++) {
+            batch.add(product(id, Math.round(random.nextDouble() * 100_000) / 100.0, 1_600_000_000_000L + id * 1000));
+            if (batch.size() == 10_000) {
+                index.indexAll(batch);
+                batch.clear();
+            }
+        }
+        long buildMs = (System.nanoTime() - buildStart) / 1_000_000;
+
+        String[] sorts = {"price", "-price", "createdAt", "-createdAt"};
+        // Warm up, then measure. Each query reads a first page and then the page after it.
+        int results = 0;
+        long start = 0;
+        for (int round = 0; round < 2; round++) {
+            start = System.nanoTime();
+            results = 0;
+            for (int i = 0; i < QUERIES; i++) {
+                double minPrice = random.nextInt(900);
+                double maxPrice = minPrice + 1 + random.nextInt(i % 2 == 0 ? 5 : 100);
+                String sort = sorts[i % sorts.length];
+                ProductBrowseIndex.Page page = index.browse(minPrice, maxPrice, sort, null, 20);
+                results += page.getIds().size();
+                if (page.getNextCursor() != null) {
+                    results += index.browse(minPrice, maxPrice, sort, page.getNextCursor(), 20).getIds().size();
+                }
+            }
+        }
+        long averageMicros = (System.nanoTime() - start) / 1000 / QUERIES;
+        System.out.println("Product browse: indexed " + CATALOG_SIZE + " products in " + buildMs + " ms, "
+                + QUERIES + " queries of two pages averaged " + averageMicros + " us, " + results + " results");
+
+        assertTrue(averageMicros < 1000, "average query took " + averageMicros + " us");
+    }
+
+    private static List<Long> browseAll(ProductBrowseIndex index, Double minPrice, Double maxPrice, String sort, int limit) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            ProductBrowseIndex.Page page = index.browse(minPrice, maxPrice, sort, cursor, limit);
+            assertTrue(page.getIds().size() <= limit);
+            ids.addAll(page.getIds());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private static List<Long> expected(List<Product> products, Double minPrice, Double maxPrice, String sort) {
+        Comparator<Product> order = sort.endsWith("price")
+                ? Comparator.comparing(Product::getPrice)
+                : Comparator.comparing(Product::getCreatedAt);
+        order = order.thenComparing(Product::getId);
+        if (sort.startsWith("-")) {
+            order = order.reversed();
+        }
+        return products.stream()
+                .filter(product -> minPrice == null || product.getPrice() >= minPrice)
+                .filter(product -> maxPrice == null || product.getPrice() <= maxPrice)
+                .sorted(order)
+                .map(Product::getId)
+                .collect(Collectors.toList());
+    }
+
+    // Few distinct prices and creation times, so that ties have to be broken by id
+    private static List<Product> randomProducts(Random random, int count, int distinctPrices) {
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            products.add(product(id, (double) random.nextInt(distinctPrices), random.nextInt(count / 4) * 1000L));
+        }
+        Collections.shuffle(products, random);
+        return products;
+    }
+
+    private static Product product(Long id, double price, long createdAt) {
+        Product product = new Product("Product " + id, "Description", price, 1L);
+        product.setId(id);
+        product.setCreatedAt(new Date(createdAt));
+        return product;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.product_service.services;
+
+import com.example.product_service.dto.AuthIdentity;
+import com.example.product_service.dto.ProductChangeDTO;
+import com.example.product_service.dto.ProductChangePageDTO;
+import com.example.product_service.entities.Product;
+import com.example.product_service.entities.ProductChangeEvent;
+import com.example.product_service.repositories.ProductChangeEventRepository;
+import com.example.product_service.repositories.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.transaction.TestTransaction;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Each test runs in one transaction, like the service methods that write the outbox
+@DataJpaTest
+class ProductChangeFeedTests {
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ProductChangeEventRepository changeEventRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private MeterRegistry meterRegistry;
+    private ProductOutbox outbox;
+    private ProductService productService;
+    private ProductChangeFeed feed;
+    private ProductChangeNotifier notifier;
+    private ProductSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // Superseded events are compacted right away, tombstones are kept
+        outbox = new ProductOutbox(jdbcTemplate, changeEventRepository, new ObjectMapper(), meterRegistry, 0, 168);
+        AuthClient authClient = Mockito.mock(AuthClient.class);
+        when(authClient.getIdentity(any())).thenReturn(AuthIdentity.of("company"));
+        notifier = Mockito.mock(ProductChangeNotifier.class);
+        searchIndex = new ProductSearchIndex();
+        productService = new ProductService(productRepository, transactionManager, authClient, notifier, searchIndex,
+                outbox, new ProductBrowseIndex());
+        feed = new ProductChangeFeed(changeEventRepository, meterRegistry, 0, 30000);
+    }
+
+    @Test
+    void changesArePagedInOrderAndResumeAfterTheToken() {
+        Product lamp = productService.createProduct(new Product("Lamp", "Warm", 10, 1L));
+        Product desk = productService.createProduct(new Product("Desk", "Oak", 90, 1L));
+        productService.updateProduct(lamp.getId(), new Product("Desk lamp", "", 0, 1L));
+        productService.deleteProduct(desk.getId());
+
+        List<ProductChangeDTO> changes = new ArrayList<>();
+        ProductChangePageDTO page = feed.read(null, 3);
+        changes.addAll(page.getChanges());
+        page = feed.read(page.getNextToken(), 3);
+        changes.addAll(page.getChanges());
+        ProductChangePageDTO caughtUp = feed.read(page.getNextToken(), 3);
+
+        assertEquals(Arrays.asList(ProductChangeEvent.CREATED, ProductChangeEvent.CREATED, ProductChangeEvent.UPDATED,
+                ProductChangeEvent.DELETED), types(changes));
+        assertTrue(changes.get(2).getProduct().contains("\"name\":\"Desk lamp\""));
+        assertTrue(changes.get(2).getProduct().contains("\"version\":1"));
+        assertNull(changes.get(3).getProduct());
+        assertTrue(caughtUp.getChanges().isEmpty());
+        assertEquals(page.getNextToken(), caughtUp.getNextToken());
+        assertEquals(4, meterRegistry.get("product.change-feed.delivered").counter().count());
+    }
+
+    @Test
+    void compactionKeepsTheLatestEventOfEachProduct() throws InterruptedException {
+        Product lamp = productService.createProduct(new Product("Lamp", "Warm", 10, 1L));
+        Product desk = productService.createProduct(new Product("Desk", "Oak", 90, 1L));
+        productService.updateProduct(lamp.getId(), new Product("Desk lamp", "", 0, 1L));
+        productService.updateProduct(lamp.getId(), new Product("Floor lamp", "", 0, 1L));
+        productService.deleteProduct(desk.getId());
+        Thread.sleep(5);
+
+        outbox.compact();
+
+        List<ProductChangeDTO> changes = feed.read(null, 10).getChanges();
+        assertEquals(Arrays.asList(ProductChangeEvent.UPDATED, ProductChangeEvent.DELETED), types(changes));
+        assertTrue(changes.get(0).getProduct().contains("\"name\":\"Floor lamp\""));
+        assertEquals(3, meterRegistry.get("product.outbox.compacted").tag("reason", "superseded").counter().count());
+    }
+
+    @Test
+    void longPollIsAnsweredOnceAChangeArrives() {
+        productService.createProduct(new Product("Lamp", "Warm", 10, 1L));
+        String token = feed.read(null, 10).getNextToken();
+
+        DeferredResult<ProductChangePageDTO> poll = feed.poll(token, 10, 10000);
+        feed.wakeWaiters();
+        assertFalse(poll.hasResult());
+
+        productService.createProduct(new Product("Desk", "Oak", 90, 1L));
+        feed.wakeWaiters();
+
+        ProductChangePageDTO page = (ProductChangePageDTO) poll.getResult();
+        assertEquals(1, page.getChanges().size());
+        assertTrue(page.getChanges().get(0).getProduct().contains("\"name\":\"Desk\""));
+    }
+
+    @Test
+    void rolledBackChangesReachNeitherTheIndexesNorTheListeners() {
+        Product lamp = productService.createProduct(new Product("Lamp", "Warm", 10, 1L));
+        productService.updateProduct(lamp.getId(), new Product("Desk lamp", "", 0, 1L));
+        assertTrue(searchIndex.search("lamp", 10).isEmpty());
+
+        TestTransaction.end();
+
+        assertTrue(searchIndex.search("lamp", 10).isEmpty());
+        verify(notifier, never()).productChanged(any());
+    }
+
+    private static List<String> types(List<ProductChangeDTO> changes) {
+        List<String> types = new ArrayList<>();
+        for (ProductChangeDTO change : changes) {
+            types.add(change.getType());
+        }
+        return types;
+    }
+}
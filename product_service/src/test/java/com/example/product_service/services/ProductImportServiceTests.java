@@ -0,0 +1,175 @@
+package com.example.product_service.services;
+
+import com.example.product_service.dto.AuthIdentity;
+import com.example.product_service.dto.ProductImportResultDTO;
+import com.example.product_service.repositories.ProductChangeEventRepository;
+import com.example.product_service.repositories.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Each chunk commits in its own transaction, so the test must not wrap the service in one
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "logging.level.root=INFO"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductImportServiceTests {
+
+    private static final int ROW_COUNT = 2_000;
+    private static final int BENCHMARK_ROW_COUNT = 20_000;
+    private static final int OWNER_COUNT = 10;
+    private static final int BATCH_SIZE = 50;
+    private static final int CHUNK_SIZE = 500;
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProductChangeEventRepository changeEventRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private CountingAuthClient authClient;
+    private ProductSearchIndex searchIndex;
+    private ProductImportService importService;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        authClient = new CountingAuthClient();
+        searchIndex = new ProductSearchIndex();
+        ProductOutbox outbox = new ProductOutbox(jdbcTemplate, changeEventRepository, new ObjectMapper(),
+                new SimpleMeterRegistry(), 60, 168);
+        importService = new ProductImportService(entityManager, transactionManager, authClient, searchIndex, outbox,
+                new ProductBrowseIndex(), new ObjectMapper(), BATCH_SIZE, CHUNK_SIZE);
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAllInBatch();
+        changeEventRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void ndjsonImportBatchesInsertsAndChecksEachOwnerOnce() throws IOException {
+        ProductImportResultDTO result = importService.importProducts(stream(ndjson(ROW_COUNT)));
+
+        assertEquals(ROW_COUNT, result.getReceived());
+        assertEquals(ROW_COUNT, result.getCreated());
+        assertTrue(result.getErrors().isEmpty());
+        assertEquals(ROW_COUNT, productRepository.count());
+        assertEquals(OWNER_COUNT, authClient.calls.get());
+        assertEquals(ROW_COUNT, searchIndex.size());
+        // Every imported product has its outbox event
+        assertEquals(ROW_COUNT, changeEventRepository.count());
+        // Rows go out in batches of BATCH_SIZE, plus one sequence call per 50 ids
+        assertTrue(statistics.getPrepareStatementCount() < ROW_COUNT / 10,
+                "prepared " + statistics.getPrepareStatementCount() + " statements for " + ROW_COUNT + " rows");
+    }
+
+    @Test
+    @Tag("benchmark")
+    void ndjsonImportThroughput() throws IOException {
+        String ndjson = ndjson(BENCHMARK_ROW_COUNT);
+
+        long start = System.nanoTime();
+        ProductImportResultDTO result = importService.importProducts(stream(ndjson));
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        System.out.println("Imported " + BENCHMARK_ROW_COUNT + " products in " + elapsedMs + " ms ("
+                + BENCHMARK_ROW_COUNT * 1000L / elapsedMs + " rows/s), " + statistics.getPrepareStatementCount()
+                + " statements prepared, " + statistics.getTransactionCount() + " transactions");
+
+        assertEquals(BENCHMARK_ROW_COUNT, result.getCreated());
+    }
+
+    @Test
+    void jsonArrayImportReportsRejectedRowsByPosition() throws IOException {
+        String json = "["
+                + "{\"name\":\"Lamp\",\"description\":\"Warm\",\"price\":10,\"ownerId\":1},"
+                + "{\"name\":\"\",\"description\":\"No name\",\"price\":10,\"ownerId\":1},"
+                + "{\"name\":\"Chair\",\"description\":\"Oak\",\"price\":\"cheap\",\"ownerId\":1},"
+                + "{\"name\":\"Desk\",\"description\":\"Pine\",\"price\":30,\"ownerId\":" + CountingAuthClient.MISSING_ID + "},"
+                + "{\"name\":\"Rug\",\"description\":\"Wool\",\"price\":40,\"ownerId\":2}"
+                + "]";
+
+        ProductImportResultDTO result = importService.importProducts(stream(json));
+
+        assertEquals(5, result.getReceived());
+        assertEquals(2, result.getCreated());
+        assertEquals(3, result.getErrors().size());
+        assertEquals(1, result.getErrors().get(0).getRow());
+        assertEquals(2, result.getErrors().get(1).getRow());
+        assertEquals(3, result.getErrors().get(2).getRow());
+        assertEquals(2, productRepository.count());
+    }
+
+    @Test
+    void malformedInputKeepsTheRowsBeforeIt() throws IOException {
+        String ndjson = "{\"name\":\"Lamp\",\"description\":\"Warm\",\"price\":10,\"ownerId\":1}\n"
+                + "{\"name\":\"Chair\",\"description\":\n";
+
+        ProductImportResultDTO result = importService.importProducts(stream(ndjson));
+
+        assertEquals(1, result.getCreated());
+        assertEquals(1, result.getErrors().size());
+        assertEquals(1, result.getErrors().get(0).getRow());
+        assertEquals(1, productRepository.count());
+    }
+
+    private static String ndjson(int rows) {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            ndjson.append("{\"name\":\"Product ").append(i).append("\",\"description\":\"Imported lamp ").append(i)
+                    .append("\",\"price\":").append(1 + i % 100).append(",\"ownerId\":").append(1 + i % OWNER_COUNT)
+                    .append("}\n");
+        }
+        return ndjson.toString();
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static class CountingAuthClient extends AuthClient {
+        static final long MISSING_ID = 999L;
+        final AtomicInteger calls = new AtomicInteger();
+
+        CountingAuthClient() {
+            super(null, null, null);
+        }
+
+        @Override
+        public AuthIdentity getIdentity(Long id) {
+            calls.incrementAndGet();
+            return id == MISSING_ID ? AuthIdentity.missing() : AuthIdentity.of("company");
+        }
+    }
+}
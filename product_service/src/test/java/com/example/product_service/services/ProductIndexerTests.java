@@ -0,0 +1,114 @@
+package com.example.product_service.services;
+
+import com.example.product_service.entities.Product;
+import com.example.product_service.entities.ProductChangeEvent;
+import com.example.product_service.repositories.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductIndexerTests {
+
+    private ProductRepository productRepository;
+    private ProductChangeFeed changeFeed;
+    private ProductSearchIndex searchIndex;
+    private ProductBrowseIndex browseIndex;
+    private ProductIndexer indexer;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = Mockito.mock(ProductRepository.class);
+        changeFeed = Mockito.mock(ProductChangeFeed.class);
+        searchIndex = new ProductSearchIndex();
+        browseIndex = new ProductBrowseIndex();
+        indexer = new ProductIndexer(productRepository, changeFeed, searchIndex, browseIndex, 2);
+        when(changeFeed.visible(anyLong(), anyInt())).thenReturn(Collections.emptyList());
+    }
+
+    @Test
+    void changesThatLandDuringTheLoadAreReplayedOverIt() {
+        // The load reads the lamp and the desk, then the lamp is renamed and the desk deleted before they are indexed
+        when(changeFeed.settledSequence()).thenReturn(10L);
+        load(product(1L, "Lamp"), product(2L, "Desk"));
+        when(changeFeed.visible(10L, 2)).thenReturn(Arrays.asList(event(11L, 1L), event(12L, 2L)));
+        when(productRepository.findAllById(any())).thenReturn(Collections.singletonList(product(1L, "Reading light")));
+
+        indexer.buildIndexes();
+
+        assertTrue(searchIndex.search("lamp", 10).isEmpty());
+        assertEquals(Collections.singletonList(1L), searchIndex.search("reading", 10));
+        assertTrue(searchIndex.search("desk", 10).isEmpty());
+        assertEquals(1, browseIndex.size());
+        assertTrue(searchIndex.isReady());
+        assertTrue(browseIndex.isReady());
+    }
+
+    @Test
+    void writesThroughOtherInstancesAreFollowedPageByPage() {
+        when(changeFeed.settledSequence()).thenReturn(0L);
+        load();
+        indexer.buildIndexes();
+        when(changeFeed.visible(0L, 2)).thenReturn(Arrays.asList(event(1L, 1L), event(2L, 2L)));
+        when(changeFeed.visible(2L, 2)).thenReturn(Collections.singletonList(event(3L, 3L)));
+        when(productRepository.findAllById(any())).thenAnswer(invocation -> {
+            List<Product> products = new ArrayList<>();
+            for (Long id : invocation.<Iterable<Long>>getArgument(0)) {
+                products.add(product(id, "Chair " + id));
+            }
+            return products;
+        });
+
+        indexer.follow();
+
+        assertEquals(3, searchIndex.search("chair", 10).size());
+        assertEquals(3, browseIndex.size());
+        verify(changeFeed).visible(2L, 2);
+    }
+
+    @Test
+    void nothingIsFollowedBeforeTheLoad() {
+        indexer.follow();
+
+        verify(changeFeed, never()).visible(anyLong(), anyInt());
+        assertFalse(searchIndex.isReady());
+    }
+
+    private void load(Product... products) {
+        // Later batches are empty
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class))).thenReturn(Arrays.asList(products));
+    }
+
+    private static Product product(Long id, String name) {
+        Product product = new Product(name, "", 10, 1L);
+        product.setId(id);
+        product.setCreatedAt(new Date(1_600_000_000_000L + id));
+        return product;
+    }
+
+    private static ProductChangeEvent event(Long sequence, Long productId) {
+        ProductChangeEvent event = new ProductChangeEvent();
+        event.setId(sequence);
+        event.setProductId(productId);
+        event.setType(ProductChangeEvent.UPDATED);
+        event.setCreatedAt(new Date());
+        return event;
+    }
+}
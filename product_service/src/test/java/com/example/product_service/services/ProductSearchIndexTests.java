@@ -0,0 +1,135 @@
+package com.example.product_service.services;
+
+import com.example.product_service.entities.Product;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSearchIndexTests {
+
+    private static final int CATALOG_SIZE = 1_000_000;
+    private static final int QUERIES = 2000;
+    private static final String[] BRANDS = {"acme", "globex", "initech", "umbrella", "stark", "wayne", "wonka", "tyrell"};
+    private static final String[] NOUNS = {"kettle", "toaster", "blender", "lamp", "chair", "desk", "monitor", "keyboard",
+            "mouse", "speaker", "headphones", "camera", "backpack", "bottle", "jacket", "sneakers"};
+    private static final String[] ADJECTIVES = {"wireless", "compact", "stainless", "ergonomic", "portable", "waterproof",
+            "vintage", "smart", "foldable", "insulated"};
+
+    @Test
+    void ranksNameMatchesAboveDescriptionMatches() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.index(product(1L, "Steel bottle", "Keeps drinks cold"));
+        index.index(product(2L, "Water jug", "A bottle sized jug"));
+        index.index(product(3L, "Desk lamp", "Warm light"));
+
+        assertEquals(Arrays.asList(1L, 2L), index.search("bottle", 10));
+    }
+
+    @Test
+    void matchesPrefixesAndRequiresEveryWord() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.index(product(1L, "Wireless keyboard", "Compact layout"));
+        index.index(product(2L, "Wired keyboard", "Full size"));
+        index.index(product(3L, "Wireless mouse", "Compact"));
+
+        assertEquals(Arrays.asList(1L, 2L), index.search("keyb", 10));
+        assertEquals(Collections.singletonList(1L), index.search("WIRELESS, keyboard", 10));
+        assertEquals(Collections.emptyList(), index.search("wireless speaker", 10));
+    }
+
+    @Test
+    void ranksWholeWordsAbovePrefixes() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.index(product(1L, "Wireless mouse", "Compact"));
+        index.index(product(2L, "Wire rack", "Steel"));
+
+        assertEquals(Arrays.asList(2L, 1L), index.search("wire", 10));
+    }
+
+    @Test
+    void updatesAndDeletesAreReflectedImmediately() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.index(product(1L, "Desk lamp", "Warm light"));
+        index.index(product(2L, "Floor lamp", "Tall"));
+
+        index.index(product(1L, "Desk organizer", "Tidy"));
+        index.remove(2L);
+
+        assertEquals(Collections.emptyList(), index.search("lamp", 10));
+        assertEquals(Collections.singletonList(1L), index.search("organizer", 10));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void compactionKeepsResultsIntact() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        for (long id = 1; id <= 5000; id++) {
+            index.index(product(id, "Lamp " + id, id % 2 == 0 ? "even" : "odd"));
+        }
+        // Enough tombstones to trigger compaction several times
+        for (long id = 1; id <= 5000; id += 2) {
+            index.remove(id);
+        }
+
+        List<Long> even = index.search("even lamp", 10000);
+        assertEquals(2500, even.size());
+        assertTrue(even.stream().allMatch(id -> id % 2 == 0));
+        assertEquals(Collections.singletonList(4000L), index.search("lamp 4000", 10));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void queriesStaySubMillisecondOnAMillionProducts() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        Random random = new Random(42);
+        long buildStart = System.nanoTime();
+        List<Product> batch = new ArrayList<>();
+        for (long id = 1; id <= CATALOG_SIZE; id++) {
+            String name = pick(random, BRANDS) + " " + pick(random, ADJECTIVES) + " " + pick(random, NOUNS) + " m" + id;
+            batch.add(product(id, name, "A " + pick(random, ADJECTIVES) + " " + pick(random, NOUNS) + " for everyday use"));
+            if (batch.size() == 10_000) {
+                index.indexAll(batch);
+                batch.clear();
+            }
+        }
+        index.markReady();
+        long buildMs = (System.nanoTime() - buildStart) / 1_000_000;
+
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < QUERIES; i++) {
+            queries.add(pick(random, BRANDS) + " " + pick(random, ADJECTIVES).substring(0, 4) + " m" + (1 + random.nextInt(CATALOG_SIZE)));
+        }
+        // Warm up, then measure
+        for (String query : queries) {
+            index.search(query, 20);
+        }
+        long start = System.nanoTime();
+        int hits = 0;
+        for (String query : queries) {
+            hits += index.search(query, 20).size();
+        }
+        long averageMicros = (System.nanoTime() - start) / 1000 / QUERIES;
+        System.out.println("Product search: indexed " + CATALOG_SIZE + " products in " + buildMs + " ms, "
+                + QUERIES + " queries averaged " + averageMicros + " us, " + hits + " hits");
+
+        assertTrue(averageMicros < 1000, "average query took " + averageMicros + " us");
+    }
+
+    private static String pick(Random random, String[] words) {
+        return words[random.nextInt(words.length)];
+    }
+
+    private static Product product(Long id, String name, String description) {
+        Product product = new Product(name, description, 1.0, 1L);
+        product.setId(id);
+        return product;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.product_service.services;
+
+import com.example.product_service.ProductCacheConfig;
+import com.example.product_service.entities.Product;
+import com.example.product_service.repositories.ProductRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Every repository call runs in its own session, as it does behind GET /api/products/{id}, so repeated reads
+// can only be answered by the second-level cache
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.root=INFO"
+})
+@Import(ProductCacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductSecondLevelCacheTests {
+
+    private static final int PRODUCT_COUNT = 200;
+    private static final int READS = 1000;
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private ProductService productService;
+    private Statistics statistics;
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        productService = new ProductService(productRepository, transactionManager, Mockito.mock(AuthClient.class),
+                Mockito.mock(ProductChangeNotifier.class), new ProductSearchIndex(), Mockito.mock(ProductOutbox.class),
+                new ProductBrowseIndex());
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            ids.add(productRepository.save(new Product("Product " + i, "Description " + i, 1.0 + i, 100L + i)).getId());
+        }
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void repeatedReadsByIdAreServedFromTheCache() {
+        Random random = new Random(42);
+        Map<String, Object> bypass = Collections.singletonMap("javax.persistence.cache.retrieveMode", CacheRetrieveMode.BYPASS);
+
+        for (int i = 0; i < READS; i++) {
+            EntityManager entityManager = entityManagerFactory.createEntityManager();
+            try {
+                entityManager.find(Product.class, ids.get(random.nextInt(PRODUCT_COUNT)), bypass);
+            } finally {
+                entityManager.close();
+            }
+        }
+        long uncachedStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        for (int i = 0; i < READS; i++) {
+            assertTrue(productService.findById(ids.get(random.nextInt(PRODUCT_COUNT))).isPresent());
+        }
+        long cachedStatements = statistics.getPrepareStatementCount();
+
+        assertEquals(READS, uncachedStatements);
+        // Only the first read of each product reaches the database
+        assertTrue(cachedStatements <= PRODUCT_COUNT, cachedStatements + " statements");
+        assertEquals(READS - cachedStatements, statistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    void updateThroughServiceEvictsCachedProduct() {
+        Long id = ids.get(0);
+        productService.findById(id);
+
+        productService.updateProduct(id, new Product("Renamed", "", 0, 100L));
+
+        assertEquals("Renamed", productService.findById(id).get().getName());
+    }
+
+    @Test
+    void deleteThroughServiceEvictsCachedProduct() {
+        Long id = ids.get(0);
+        productService.findById(id);
+
+        assertTrue(productService.deleteProduct(id));
+
+        assertFalse(productService.findById(id).isPresent());
+    }
+
+    @Test
+    void ownerLookupIsServedFromTheQueryCacheUntilProductsChange() {
+        productService.getProductByOwner(100L);
+        productService.getProductByOwner(100L);
+        assertEquals(1, statistics.getQueryCacheHitCount());
+
+        productService.updateProduct(ids.get(0), new Product("Renamed", "", 0, 100L));
+
+        assertEquals("Renamed", productService.getProductByOwner(100L).get().getName());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.product_service.services;
+
+import com.example.product_service.dto.AuthIdentity;
+import com.example.product_service.entities.Product;
+import com.example.product_service.repositories.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ProductServiceTests {
+
+    private ProductRepository productRepository;
+    private PlatformTransactionManager transactionManager;
+    private AuthClient authClient;
+    private ProductOutbox productOutbox;
+    private ProductService productService;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = Mockito.mock(ProductRepository.class);
+        transactionManager = Mockito.mock(PlatformTransactionManager.class);
+        authClient = Mockito.mock(AuthClient.class);
+        productOutbox = Mockito.mock(ProductOutbox.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        productService = new ProductService(productRepository, transactionManager, authClient,
+                Mockito.mock(ProductChangeNotifier.class), new ProductSearchIndex(), productOutbox,
+                new ProductBrowseIndex());
+    }
+
+    @Test
+    void ownerIsLookedUpBeforeTheTransactionStarts() {
+        when(authClient.getIdentity(7L)).thenReturn(AuthIdentity.of("company"));
+        Product product = new Product("Kettle", "Steel", 25.0, 7L);
+
+        assertSame(product, productService.createProduct(product));
+
+        // The product and its outbox event are written in the transaction, the lookup is not
+        InOrder inOrder = inOrder(authClient, transactionManager, productRepository, productOutbox);
+        inOrder.verify(authClient).getIdentity(7L);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(productRepository).save(product);
+        inOrder.verify(productOutbox).created(product);
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void unknownOwnerStartsNoTransaction() {
+        when(authClient.getIdentity(7L)).thenReturn(AuthIdentity.missing());
+
+        assertThrows(RuntimeException.class,
+                () -> productService.createProduct(new Product("Kettle", "Steel", 25.0, 7L)));
+
+        verifyNoInteractions(transactionManager, productRepository, productOutbox);
+    }
+}